@@ -0,0 +1,32 @@
+package com.gordonlu.daffydialog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Picking the theme, the only step of createAlertDialogBuilder that needs neither a Context nor HTML parsing, which
+// HtmlBenchmark covers. AlertDialog.Builder and showAlertDialog need a running Form and are only measured on a device.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class BuildBenchmark {
+
+    boolean lightTheme = true;
+    boolean fullscreen = false;
+
+    @Benchmark
+    public int theme() {
+        return DialogThemes.select(false, lightTheme, fullscreen);
+    }
+}
@@ -0,0 +1,37 @@
+package com.gordonlu.daffydialog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The part of getDrawableFromPath that runs off a device: picking the sample size for a photo-sized image. The decode
+// itself goes through BitmapFactory, whose native code is not in android-all, so it is only measured on a device.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class DecodeBenchmark {
+
+    int width = 4000;
+    int height = 3000;
+
+    @Benchmark
+    public int sampleSizeForDisplay() {
+        return BitmapDecoder.computeSampleSize(width, height, 1080, 2340, 0, 4);
+    }
+
+    @Benchmark
+    public int sampleSizeWithByteLimit() {
+        return BitmapDecoder.computeSampleSize(width, height, 1080, 2340, 512 * 1024, 4);
+    }
+}
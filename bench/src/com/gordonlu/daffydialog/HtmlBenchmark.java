@@ -0,0 +1,54 @@
+package com.gordonlu.daffydialog;
+
+import android.text.Html;
+import android.text.Spanned;
+import android.text.SpannedString;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The three ways getHtml can produce a title, message or button label.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class HtmlBenchmark {
+
+    String message = "<b>Your order has shipped.</b><br>It will arrive on <i>Tuesday</i>. Track it with the code " +
+        "<font color='#3F51B5'>DX-20931-AF</font> or contact <u>support</u> if anything looks wrong.";
+
+    HtmlCache htmlCache;
+
+    @Setup
+    public void setUp() {
+        htmlCache = new HtmlCache(64);
+        htmlCache.get(message, Html.FROM_HTML_MODE_COMPACT);
+    }
+
+    @Benchmark
+    public Spanned plainText() {
+        return new SpannedString(message);
+    }
+
+    @Benchmark
+    public Spanned parseHtml() {
+        return new SpannedString(Html.fromHtml(message, Html.FROM_HTML_MODE_COMPACT));
+    }
+
+    @Benchmark
+    public Spanned cachedHtml() {
+        return htmlCache.get(message, Html.FROM_HTML_MODE_COMPACT);
+    }
+}
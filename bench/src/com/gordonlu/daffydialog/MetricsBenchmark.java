@@ -0,0 +1,48 @@
+package com.gordonlu.daffydialog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// What one instrumented phase costs, with metrics turned off and on.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class MetricsBenchmark {
+
+    DialogMetrics disabled;
+    DialogMetrics enabled;
+
+    @Setup
+    public void setUp() {
+        disabled = new DialogMetrics();
+        enabled = new DialogMetrics();
+        enabled.enabled = true;
+    }
+
+    @Benchmark
+    public long phaseDisabled() {
+        long start = disabled.start();
+        disabled.record("ShowTextInputDialog", DialogMetrics.BUILD, start);
+        return start;
+    }
+
+    @Benchmark
+    public long phaseEnabled() {
+        long start = enabled.start();
+        enabled.record("ShowTextInputDialog", DialogMetrics.BUILD, start);
+        return start;
+    }
+}
@@ -0,0 +1,54 @@
+package com.gordonlu.daffydialog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// DefineDialogTemplate parses a text once; ShowFromTemplate fills it on every show.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class TemplateBenchmark {
+
+    String source = "Delete {count} items from <b>{folder}</b>? This cannot be undone.";
+
+    DialogTemplate.Text text;
+    Map<String, Object> substitutions;
+
+    @Setup
+    public void setUp() {
+        text = DialogTemplate.Text.parse(source);
+        substitutions = new HashMap<>();
+        substitutions.put("count", 12);
+        substitutions.put("folder", "Invoices & receipts");
+    }
+
+    @Benchmark
+    public DialogTemplate.Text parse() {
+        return DialogTemplate.Text.parse(source);
+    }
+
+    @Benchmark
+    public String fill() {
+        return text.fill(substitutions, false);
+    }
+
+    @Benchmark
+    public String fillEscaped() {
+        return text.fill(substitutions, true);
+    }
+}
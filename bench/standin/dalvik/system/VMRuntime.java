@@ -0,0 +1,24 @@
+package dalvik.system;
+
+import java.lang.reflect.Array;
+
+/**
+ * Desktop stand-in for the one ART runtime method that android.text needs, so that
+ * Html.fromHtml and SpannableStringBuilder from the android-all jar run on a plain JVM.
+ * It has to come before android-all on the classpath.
+ */
+public final class VMRuntime {
+
+    private static final VMRuntime runtime = new VMRuntime();
+
+    private VMRuntime() {
+    }
+
+    public static VMRuntime getRuntime() {
+        return runtime;
+    }
+
+    public Object newUnpaddedArray(Class<?> componentType, int minLength) {
+        return Array.newInstance(componentType, minLength);
+    }
+}
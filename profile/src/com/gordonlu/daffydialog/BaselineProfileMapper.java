@@ -0,0 +1,138 @@
+package com.gordonlu.daffydialog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the rules of profile/baseline-prof.txt to the names in a jar shrunk by ProGuard, using the mapping file
+ * ProGuard printed. A rule for a class or method that ProGuard removed or inlined is dropped. A method name, with or
+ * without wildcards, gets one rule for each new name it maps to. Runs on the desktop JVM during the build.
+ *
+ * Usage: BaselineProfileMapper source-profile output-profile [proguard-mapping]
+ */
+public final class BaselineProfileMapper {
+
+    private static final Pattern RULE = Pattern.compile("([HSP]*)L([^;]+);(?:->([^(]+)(\\(.*))?");
+    private static final Pattern TYPE = Pattern.compile("L([^;]+);");
+
+    // Original class name, with dots, to its new name and the new names of its methods by original name.
+    private final Map<String, String> classes = new HashMap<>();
+    private final Map<String, Map<String, Set<String>>> methods = new HashMap<>();
+
+    private BaselineProfileMapper() {
+    }
+
+    static BaselineProfileMapper read(File mapping) throws IOException {
+        BaselineProfileMapper mapper = new BaselineProfileMapper();
+        Map<String, Set<String>> classMethods = null;
+        for (String line : Files.readAllLines(mapping.toPath(), StandardCharsets.UTF_8)) {
+            int arrow = line.indexOf(" -> ");
+            if (arrow < 0 || line.startsWith("#")) continue;
+            if (!Character.isWhitespace(line.charAt(0))) {
+                String original = line.substring(0, arrow);
+                mapper.classes.put(original, line.substring(arrow + 4, line.length() - 1));
+                classMethods = new HashMap<>();
+                mapper.methods.put(original, classMethods);
+                continue;
+            }
+            int parenthesis = line.indexOf('(');
+            if (classMethods == null || parenthesis < 0 || parenthesis > arrow) continue;
+            String name = line.substring(line.lastIndexOf(' ', parenthesis) + 1, parenthesis);
+            Set<String> newNames = classMethods.get(name);
+            if (newNames == null) {
+                newNames = new LinkedHashSet<>();
+                classMethods.put(name, newNames);
+            }
+            newNames.add(line.substring(arrow + 4).trim());
+        }
+        return mapper;
+    }
+
+    static List<String> readRules(File profile) throws IOException {
+        List<String> rules = new ArrayList<>();
+        for (String line : Files.readAllLines(profile.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) rules.add(line);
+        }
+        return rules;
+    }
+
+    List<String> map(List<String> rules) {
+        // Several original methods can be renamed to the same name, so rules are only added once.
+        Set<String> mapped = new LinkedHashSet<>();
+        for (String rule : rules) {
+            Matcher matcher = RULE.matcher(rule);
+            if (!matcher.matches()) {
+                mapped.add(rule);
+                continue;
+            }
+            String className = matcher.group(2).replace('/', '.');
+            String newClass = classes.get(className);
+            if (newClass == null) continue;
+
+            String prefix = matcher.group(1) + "L" + newClass.replace('.', '/') + ";";
+            String name = matcher.group(3);
+            if (name == null) {
+                mapped.add(prefix);
+                continue;
+            }
+            String descriptor = mapDescriptor(matcher.group(4));
+            if (name.equals("**") || name.startsWith("<")) {
+                mapped.add(prefix + "->" + name + descriptor);
+                continue;
+            }
+            for (String newName : newNames(className, name))
+                mapped.add(prefix + "->" + newName + descriptor);
+        }
+        return new ArrayList<>(mapped);
+    }
+
+    // A name with wildcards is matched against the original names, since renamed methods no longer match it.
+    private Set<String> newNames(String className, String name) {
+        Map<String, Set<String>> classMethods = methods.get(className);
+        Set<String> newNames = new LinkedHashSet<>();
+        if (!name.contains("*") && !name.contains("?")) {
+            Set<String> names = classMethods.get(name);
+            if (names != null) newNames.addAll(names);
+            return newNames;
+        }
+        Pattern pattern = Pattern.compile(Pattern.quote(name).replace("?", "\\E.\\Q").replace("*", "\\E.*\\Q"));
+        for (Map.Entry<String, Set<String>> entry : classMethods.entrySet())
+            if (pattern.matcher(entry.getKey()).matches()) newNames.addAll(entry.getValue());
+        return newNames;
+    }
+
+    private String mapDescriptor(String descriptor) {
+        Matcher matcher = TYPE.matcher(descriptor);
+        StringBuffer mapped = new StringBuffer();
+        while (matcher.find()) {
+            String newClass = classes.get(matcher.group(1).replace('/', '.'));
+            String type = newClass == null ? matcher.group(1) : newClass.replace('.', '/');
+            matcher.appendReplacement(mapped, Matcher.quoteReplacement("L" + type + ";"));
+        }
+        matcher.appendTail(mapped);
+        return mapped.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) throw new IllegalArgumentException("Usage: BaselineProfileMapper source output [mapping]");
+        List<String> rules = readRules(new File(args[0]));
+        // Without ProGuard the classes keep the names of the source.
+        if (args.length > 2 && !args[2].isEmpty()) rules = read(new File(args[2])).map(rules);
+
+        File output = new File(args[1]);
+        output.getParentFile().mkdirs();
+        Files.write(output.toPath(), rules, StandardCharsets.UTF_8);
+        System.out.println("Wrote " + rules.size() + " baseline profile rules to " + output);
+    }
+}
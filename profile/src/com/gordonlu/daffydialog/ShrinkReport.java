@@ -0,0 +1,73 @@
+package com.gordonlu.daffydialog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Compares the runtime jar without ProGuard, with the default keep rules and with the optimized ones, and counts how
+ * much of the baseline profile is left in each. Startup time needs a device, so the report only says how to measure
+ * it. Runs on the desktop JVM during the build.
+ *
+ * Usage: ShrinkReport name report profile unshrunk.jar default.jar default.map optimized.jar optimized.map
+ */
+public final class ShrinkReport {
+
+    private ShrinkReport() {
+    }
+
+    private static int countClasses(File jar) throws IOException {
+        int count = 0;
+        try (ZipFile zip = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements())
+                if (entries.nextElement().getName().endsWith(".class")) count++;
+        }
+        return count;
+    }
+
+    private static String row(String label, File jar, long baseBytes) throws IOException {
+        long bytes = jar.length();
+        String change = bytes == baseBytes ? "" : String.format(Locale.ROOT, "%+.1f%%",
+            (bytes - baseBytes) * 100.0 / baseBytes);
+        return String.format(Locale.ROOT, "%-12s %10d %9d %9s", label, bytes, countClasses(jar), change);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 8) throw new IllegalArgumentException(
+            "Usage: ShrinkReport name report profile unshrunk.jar default.jar default.map optimized.jar optimized.map");
+        File unshrunk = new File(args[3]);
+        File defaultJar = new File(args[4]);
+        File optimizedJar = new File(args[6]);
+        List<String> rules = BaselineProfileMapper.readRules(new File(args[2]));
+        int defaultRules = BaselineProfileMapper.read(new File(args[5])).map(rules).size();
+        int optimizedRules = BaselineProfileMapper.read(new File(args[7])).map(rules).size();
+
+        List<String> report = new ArrayList<>();
+        report.add("Size report for " + args[0]);
+        report.add("");
+        report.add(String.format(Locale.ROOT, "%-12s %10s %9s %9s", "", "bytes", "classes", "change"));
+        report.add(row("unshrunk", unshrunk, unshrunk.length()));
+        report.add(row("default", defaultJar, unshrunk.length()));
+        report.add(row("optimized", optimizedJar, unshrunk.length()));
+        report.add("");
+        report.add("Baseline profile: " + rules.size() + " rules, " + defaultRules + " left after the default keep " +
+            "rules, " + optimizedRules + " after the optimized ones.");
+        report.add("");
+        report.add("Startup cannot be measured during the build. To compare on a device, build the app once with each");
+        report.add("jar and compare the millis of FirstDialogShown right after a fresh install.");
+
+        File output = new File(args[1]);
+        output.getParentFile().mkdirs();
+        Files.write(output.toPath(), report, StandardCharsets.UTF_8);
+        for (String line : report)
+            System.out.println(line);
+    }
+}
@@ -0,0 +1,217 @@
+package com.gordonlu.daffydialog;
+
+import android.app.Activity;
+import android.graphics.drawable.GradientDrawable;
+import android.os.Handler;
+import android.text.TextUtils;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import java.util.ArrayDeque;
+
+/**
+ * Shows short messages one after another in a single banner laid over the content of the screen, instead of opening
+ * a dialog window for each of them. The banner view is created once and reused. A message that is already showing
+ * or waiting is not queued again; if it is showing, it just stays on screen longer. Once a banner starts fading out it
+ * is done: clicks on it are ignored and the same message is queued again. Only used from the main thread.
+ */
+final class BannerQueue {
+
+    interface Listener {
+        void onBannerClicked(int id);
+
+        // Called each time a message is put in the banner view.
+        void onBannerShown(int id, TextView view);
+    }
+
+    static final class Style {
+        int gravity;
+        boolean light;
+        int duration;
+    }
+
+    private static final class Banner {
+        final int id;
+        final CharSequence text;
+        final Style style;
+
+        Banner(int id, CharSequence text, Style style) {
+            this.id = id;
+            this.text = text;
+            this.style = style;
+        }
+    }
+
+    private static final int FADE_DURATION = 150;
+
+    private final Activity activity;
+    private final Handler handler;
+    private final Listener listener;
+    private final ArrayDeque<Banner> queue = new ArrayDeque<>();
+
+    private TextView view;
+    private Boolean lightStyle;
+    private Banner current;
+    private boolean hiding;
+    private int maxQueued = 8;
+    private int coalesced;
+    private int dropped;
+
+    private final Runnable hide = new Runnable() {
+        @Override
+        public void run() {
+            hideCurrent();
+        }
+    };
+
+    BannerQueue(Activity activity, Handler handler, Listener listener) {
+        this.activity = activity;
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    void setMaxQueued(int maxQueued) {
+        this.maxQueued = Math.max(0, maxQueued);
+        while (queue.size() > this.maxQueued) {
+            queue.pollFirst();
+            dropped++;
+        }
+    }
+
+    void show(int id, CharSequence text, Style style) {
+        if (current != null && !hiding && current.id == id && TextUtils.equals(current.text, text)) {
+            coalesced++;
+            handler.removeCallbacks(hide);
+            handler.postDelayed(hide, style.duration);
+            return;
+        }
+        for (Banner banner : queue) {
+            if (banner.id == id && TextUtils.equals(banner.text, text)) {
+                coalesced++;
+                return;
+            }
+        }
+
+        if (queue.size() >= maxQueued && current != null) {
+            // Older notices are the least useful, so the oldest waiting one makes room.
+            if (queue.isEmpty()) {
+                dropped++;
+                return;
+            }
+            queue.pollFirst();
+            dropped++;
+        }
+        queue.addLast(new Banner(id, text, style));
+        if (current == null) showNext();
+    }
+
+    void clear() {
+        queue.clear();
+        handler.removeCallbacks(hide);
+        current = null;
+        hiding = false;
+        if (view != null) {
+            view.animate().cancel();
+            ViewGroup parent = (ViewGroup) view.getParent();
+            if (parent != null) parent.removeView(view);
+            view = null;
+            lightStyle = null;
+        }
+    }
+
+    int coalesced() {
+        return coalesced;
+    }
+
+    int dropped() {
+        return dropped;
+    }
+
+    private void showNext() {
+        current = queue.pollFirst();
+        if (current == null) return;
+
+        TextView banner = getView();
+        if (banner == null) {
+            current = null;
+            queue.clear();
+            return;
+        }
+        applyStyle(banner, current.style);
+        banner.setText(current.text);
+        listener.onBannerShown(current.id, banner);
+        banner.setVisibility(View.VISIBLE);
+        banner.animate().cancel();
+        banner.setAlpha(0);
+        banner.animate().alpha(1).setDuration(FADE_DURATION);
+        handler.postDelayed(hide, current.style.duration);
+    }
+
+    private void hideCurrent() {
+        handler.removeCallbacks(hide);
+        if (view == null || hiding) return;
+        hiding = true;
+        view.animate().cancel();
+        view.animate().alpha(0).setDuration(FADE_DURATION).withEndAction(new Runnable() {
+            @Override
+            public void run() {
+                if (view == null) return;
+                view.setVisibility(View.GONE);
+                hiding = false;
+                current = null;
+                showNext();
+            }
+        });
+    }
+
+    private TextView getView() {
+        if (view != null) return view;
+        ViewGroup root = (ViewGroup) activity.findViewById(android.R.id.content);
+        if (root == null) return null;
+
+        view = new TextView(activity);
+        int padding = dp(12);
+        view.setPadding(padding + dp(4), padding, padding + dp(4), padding);
+        view.setMaxLines(3);
+        view.setEllipsize(TextUtils.TruncateAt.END);
+        view.setElevation(dp(6));
+        view.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (current == null || hiding) return;
+                listener.onBannerClicked(current.id);
+                hideCurrent();
+            }
+        });
+        root.addView(view, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT));
+        return view;
+    }
+
+    private void applyStyle(TextView banner, Style style) {
+        FrameLayout.LayoutParams params = (FrameLayout.LayoutParams) banner.getLayoutParams();
+        if (params.gravity != style.gravity) {
+            params.gravity = style.gravity;
+            int margin = dp(16);
+            params.setMargins(margin, margin, margin, margin);
+            banner.setLayoutParams(params);
+        }
+
+        if (lightStyle == null || lightStyle != style.light) {
+            lightStyle = style.light;
+            GradientDrawable background = new GradientDrawable();
+            background.setCornerRadius(dp(8));
+            background.setColor(style.light ? 0xFFF5F5F5 : 0xFF323232);
+            banner.setBackground(background);
+            banner.setTextColor(style.light ? 0xDE000000 : 0xFFFFFFFF);
+        }
+    }
+
+    private int dp(int value) {
+        return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value,
+            activity.getResources().getDisplayMetrics());
+    }
+}
@@ -0,0 +1,90 @@
+package com.gordonlu.daffydialog;
+
+import android.content.res.AssetManager;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes bitmaps no larger than they can be displayed. A bounds-only pass reads the image size first,
+ * then a power-of-two sample size is chosen from the target size and the optional byte limit.
+ */
+final class BitmapDecoder {
+
+    interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private BitmapDecoder() {
+    }
+
+    static Source fromFile(final String path) {
+        return new Source() {
+            @Override
+            public InputStream open() throws IOException {
+                return new FileInputStream(path);
+            }
+        };
+    }
+
+    static Source fromAsset(final AssetManager assetManager, final String name) {
+        return new Source() {
+            @Override
+            public InputStream open() throws IOException {
+                return assetManager.open(name);
+            }
+        };
+    }
+
+    static BitmapFactory.Options readBounds(Source source) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        InputStream stream = source.open();
+        try {
+            BitmapFactory.decodeStream(stream, null, options);
+        } finally {
+            stream.close();
+        }
+        return options;
+    }
+
+    static Bitmap decode(Source source, int reqWidth, int reqHeight, long maxBytes, boolean preferRgb565) throws IOException {
+        BitmapFactory.Options options = readBounds(source);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+
+        // JPEGs cannot carry an alpha channel, so they lose nothing when decoded with half the bytes per pixel.
+        boolean opaque = "image/jpeg".equals(options.outMimeType);
+        options.inPreferredConfig = preferRgb565 && opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        int bytesPerPixel = options.inPreferredConfig == Bitmap.Config.RGB_565 ? 2 : 4;
+
+        options.inSampleSize = computeSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight,
+            maxBytes, bytesPerPixel);
+        options.inJustDecodeBounds = false;
+
+        InputStream stream = source.open();
+        try {
+            return BitmapFactory.decodeStream(stream, null, options);
+        } finally {
+            stream.close();
+        }
+    }
+
+    static int computeSampleSize(int width, int height, int reqWidth, int reqHeight, long maxBytes, int bytesPerPixel) {
+        int sampleSize = 1;
+        if (reqWidth > 0 && reqHeight > 0) {
+            // The image is scaled to fit inside the target, so only the tighter dimension matters.
+            double scale = Math.min((double) reqWidth / width, (double) reqHeight / height);
+            while (sampleSize * 2 * scale <= 1) sampleSize *= 2;
+        }
+        if (maxBytes > 0) {
+            while ((long) (width / sampleSize) * (height / sampleSize) * bytesPerPixel > maxBytes
+                    && width / sampleSize > 1 && height / sampleSize > 1)
+                sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
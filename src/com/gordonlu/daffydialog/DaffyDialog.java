@@ -17,51 +17,92 @@ import com.google.appinventor.components.runtime.AndroidNonvisibleComponent;
 import com.google.appinventor.components.runtime.AndroidViewComponent;
 import com.google.appinventor.components.runtime.ComponentContainer;
 import com.google.appinventor.components.runtime.EventDispatcher;
+import com.google.appinventor.components.runtime.OnDestroyListener;
+import com.google.appinventor.components.runtime.OnPauseListener;
 import com.google.appinventor.components.runtime.util.MediaUtil;
+import com.google.appinventor.components.runtime.util.YailDictionary;
+import com.google.appinventor.components.runtime.util.YailList;
 
+import com.gordonlu.daffydialog.helpers.DialogType;
 import com.gordonlu.daffydialog.helpers.Font;
 import com.gordonlu.daffydialog.helpers.InputType;
+import com.gordonlu.daffydialog.helpers.PrewarmType;
 
 import android.app.AlertDialog;
 
 import android.content.Context;
 import android.content.DialogInterface;
-import android.content.res.AssetManager;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.BlendMode;
 import android.graphics.BlendModeColorFilter;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.BitmapDrawable;
 
+import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.text.Editable;
 import android.text.Html;
 import android.text.Spanned;
 import android.text.SpannedString;
+import android.text.TextWatcher;
 import android.text.method.PasswordTransformationMethod;
 
+import android.util.DisplayMetrics;
+
 import android.view.Gravity;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.Window;
 
 import android.view.inputmethod.InputMethodManager;
 
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
 import android.widget.EditText;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.ListView;
 import android.widget.NumberPicker;
 import android.widget.ProgressBar;
+import android.widget.TextView;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.WeakHashMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
 
 @DesignerComponent(
         version = 9,
@@ -72,7 +113,7 @@ import java.util.List;
         iconName = "aiwebres/icon.png")
 @SimpleObject(external = true)
 
-public class DaffyDialog extends AndroidNonvisibleComponent {
+public class DaffyDialog extends AndroidNonvisibleComponent implements OnDestroyListener, OnPauseListener {
 
     boolean html = false;
     float dimAmount = 0.5f;
@@ -85,11 +126,96 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     int alignHorizontalDialog = 3;
 
     boolean dismissWhenBackgroundClicked = false;
+    boolean lazyCustomDialogs = false;
+
+    final DialogRegistry dialogRegistry = new DialogRegistry(new DialogRegistry.ReleaseListener() {
+        @Override
+        public void onReleased(DialogRegistry.Entry entry) {
+            if (entry.dialog != null) scheduler.cancel(entry.dialog);
+            if (entry.kind == DialogRegistry.Kind.PROGRESS) progressUpdates.discard(entry.id);
+            else if (entry.kind == DialogRegistry.Kind.MULTI_PROGRESS) ((MultiProgressView) entry.content).release();
+            else restoreCustomDialogView(entry);
+        }
+    });
+
+    int imageCacheSize = 4096;
+    final ImageCache imageCache = new ImageCache(imageCacheSize);
+
+    // Files smaller than this decode about as fast as their cached copy would.
+    static final long MIN_THUMBNAIL_SOURCE_SIZE = 256 * 1024;
+    int thumbnailCacheSize = 0;
+    final ThumbnailDiskCache thumbnailCache;
+
+    boolean asyncImageDecoding = false;
+    boolean preferRGB565 = false;
+    int maxDecodedImageSize = 0;
+
+    int dialogPoolSize = 0;
+    final DialogPool dialogPool = new DialogPool(dialogPoolSize);
+
+    final HashMap<String, DialogTemplate> dialogTemplates = new HashMap<>();
 
-    HashMap<Integer, AlertDialog> customDialogs = new HashMap<>();
+    final HtmlCache htmlCache = new HtmlCache(64);
+    final InlineImages inlineImages;
+
+    final HashMap<String, PrefixIndex> vocabularies = new HashMap<>();
+    int autocompleteDelay = 150;
+
+    final HashMap<Integer, InputValidation> inputValidations = new HashMap<>();
+    int textChangedInterval = 0;
+
+    final Handler uiHandler = new Handler(Looper.getMainLooper());
+    final MainThreadDispatcher dispatcher = new MainThreadDispatcher(uiHandler);
+    static final ConcurrentHashMap<String, Method> blockMethods = new ConcurrentHashMap<>();
+    boolean strictThreadChecks = false;
+
+    int bannerDuration = 2500;
+    int bannerQueueSize = 8;
+    final BannerQueue banners;
+
+    // Maps the blocks that show each dialog type to the type, for timing the first show of each type.
+    final HashMap<String, PrewarmType> blockPrewarmTypes = new HashMap<String, PrewarmType>() {{
+        put("CustomMessageDialog", PrewarmType.Message);
+        put("CustomChooseDialog", PrewarmType.Choose);
+        put("ShowTextInputDialog", PrewarmType.TextInput);
+        put("ShowPasswordInputDialog", PrewarmType.PasswordInput);
+        put("ShowNumberPickerDialog", PrewarmType.NumberPicker);
+    }};
+    final HashSet<PrewarmType> prewarmedTypes = new HashSet<>();
+    final HashSet<PrewarmType> shownTypes = new HashSet<>();
+    final HashMap<PrewarmType, Long> firstShowStarts = new HashMap<>();
+    final ArrayList<MessageQueue.IdleHandler> prewarmers = new ArrayList<>();
+
+    boolean schedulerEnabled = false;
+    int maxVisibleDialogs = 1;
+    int minShowInterval = 0;
+    int maxQueuedDialogs = 16;
+    final HashMap<Integer, Integer> dialogPriorities = new HashMap<>();
+    final DialogScheduler scheduler = new DialogScheduler(uiHandler, new DialogScheduler.Presenter() {
+        @Override
+        public void present(AlertDialog dialog, String type, int id, Runnable afterShow) {
+            presentDialog(dialog, type, id, afterShow);
+        }
+    });
+
+    final DialogMetrics metrics = new DialogMetrics();
+    final WeakHashMap<AlertDialog, ResponseTimer> responseTimers = new WeakHashMap<>();
+    int metricsReportInterval = 0;
+    final Runnable metricsReporter = new Runnable() {
+        @Override
+        public void run() {
+            MetricsReport(metrics.toDictionary());
+            scheduleMetricsReport();
+        }
+    };
 
-    HashMap<Integer, ProgressBar> progressBars = new HashMap<>();
-    HashMap<Integer, AlertDialog> progressDialogs = new HashMap<>();
+    final ProgressUpdates progressUpdates = new ProgressUpdates(uiHandler, new ProgressUpdates.Target() {
+        @Override
+        public void applyProgress(int id, int progress) {
+            DaffyDialog.this.applyProgress(id, progress);
+        }
+    });
+    ExecutorService executor;
 
     final HashMap<String, Typeface> fonts = new HashMap<String, Typeface>() {{
         put("MONOSPACE", Typeface.MONOSPACE);
@@ -97,11 +223,87 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
         put("SERIF", Typeface.SERIF);
     }};
 
+    static final ConcurrentHashMap<String, Typeface> typefaces = new ConcurrentHashMap<>();
+    String dialogFont = Font.Default.toUnderlyingValue();
+    int alertTitleId = 0;
+
     final List<Integer> verticalGravities = new ArrayList<>(Arrays.asList(Gravity.TOP, Gravity.CENTER_VERTICAL, Gravity.BOTTOM));
     final List<Integer> horizontalGravities = new ArrayList<>(Arrays.asList(Gravity.LEFT, Gravity.RIGHT, Gravity.CENTER_HORIZONTAL));
 
     public DaffyDialog(ComponentContainer container){
         super(container.$form());
+        thumbnailCache = new ThumbnailDiskCache(new File(form.getCacheDir(), "DaffyDialog-thumbnails"), thumbnailCacheSize);
+        inlineImages = new InlineImages(new InlineImages.Loader() {
+            @Override
+            public BitmapDecoder.Source open(String path) {
+                return getImageSource(path);
+            }
+
+            @Override
+            public Bitmap load(String path) throws IOException {
+                return getBitmapFromPath(path);
+            }
+
+            @Override
+            public void onError(String path, Exception e, String block) {
+                Error("Error while trying to read the image " + path + ": " + e.getMessage(), block);
+            }
+
+            @Override
+            public void onFailed(String path) {
+                htmlCache.evictContaining(path);
+            }
+        }, new Executor() {
+            // Looked up for every image, since the pool is replaced after onDestroy.
+            @Override
+            public void execute(Runnable task) {
+                getExecutor().execute(task);
+            }
+        }, uiHandler, form.getResources().getDisplayMetrics().widthPixels * 2 / 3);
+        banners = new BannerQueue(form, uiHandler, new BannerQueue.Listener() {
+            @Override
+            public void onBannerClicked(int id) {
+                BannerClicked(id);
+            }
+
+            @Override
+            public void onBannerShown(int id, TextView view) {
+                if (inlineImages.hasPending()) inlineImages.attach(view, "ShowBanner");
+            }
+        });
+        form.registerForOnDestroy(this);
+        form.registerForOnPause(this);
+    }
+
+    @Override
+    public void onPause() {
+        if (form.isFinishing()) releaseAll();
+    }
+
+    @Override
+    public void onDestroy() {
+        uiHandler.removeCallbacks(metricsReporter);
+        dispatcher.clear();
+        scheduler.clear();
+        banners.clear();
+        // Otherwise the main looper would keep building dialogs for a screen that is gone.
+        for (MessageQueue.IdleHandler prewarmer : prewarmers)
+            Looper.myQueue().removeIdleHandler(prewarmer);
+        prewarmers.clear();
+        releaseAll();
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdownNow();
+                // A later call gets a new pool instead of one that rejects every task.
+                executor = null;
+            }
+        }
+    }
+
+    // Dismisses every dialog kept by this extension so that no window outlives the screen.
+    public void releaseAll() {
+        dialogRegistry.releaseAll();
+        dialogPool.clear();
     }
 
     // The following blocks are related to custom dialogs.
@@ -109,37 +311,96 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     @SimpleFunction(description = "Creates a dialog of a component. You can use arrangements, images, or other visible components in the custom dialog." + 
     " Your chosen layout or component will be removed from the screen and only visible in the custom dialog. Please" +
     " make sure the layout you want to use is visible. The ID parameter is used for identification so that " +
-    " you can create multiple custom dialogs with one DaffyDialog extension.")
+    " you can create multiple custom dialogs with one DaffyDialog extension. If LazyCustomDialogs is true, the dialog is" +
+    " only built the first time it is shown, and the component stays where it is until then, so you may want to hide it.")
     public void CreateCustomDialog(AndroidViewComponent component, int id) {
-        if (customDialogs.containsKey(id)) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("CreateCustomDialog", component, id);
+            return;
+        }
+        if (dialogRegistry.contains(DialogRegistry.Kind.CUSTOM, id)) {
             Error("Sorry, a custom dialog with the id " + id +
                 " has already been used. Please create a custom dialog with a new ID.", "CreateCustomDialog");
         } else {
-            AlertDialog.Builder builder = createAlertDialogBuilder("CreateCustomDialog", null, null, null, component.getView());
-
-            ((ViewGroup) component.getView().getParent()).removeView(component.getView());
-            customDialogs.put(id, builder.create());
+            View view = component.getView();
+            ViewGroup parent = (ViewGroup) view.getParent();
+            DialogRegistry.Entry entry = dialogRegistry.register(DialogRegistry.Kind.CUSTOM, id, null, view);
+            entry.originalParent = parent;
+            entry.originalIndex = parent == null ? 0 : parent.indexOfChild(view);
+            entry.originalLayoutParams = view.getLayoutParams();
+            entry.originalVisibility = view.getVisibility();
+
+            if (!lazyCustomDialogs) buildCustomDialog(entry);
         }
     }
 
     @SimpleFunction(description = "Shows the custom dialog that you have created with the ID.")
     public void ShowCustomDialog(int id) {
-        if (customDialogs.containsKey(id))
-           showAlertDialog(customDialogs.get(id));
-        else
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatchShow("ShowCustomDialog", DialogRegistry.Kind.CUSTOM, id);
+            return;
+        }
+        DialogRegistry.Entry entry = dialogRegistry.get(DialogRegistry.Kind.CUSTOM, id);
+        if (entry != null) {
+            if (entry.dialog == null) buildCustomDialog(entry);
+            showAlertDialog(entry.dialog, "ShowCustomDialog", id);
+            dialogRegistry.markShowing(entry);
+        } else
             Error("Sorry, a custom dialog with the id " + id + " does not exist.", "ShowCustomDialog");
     }
 
     @SimpleFunction (description = "Dismisses the custom dialog.")
     public void DismissCustomDialog(int id){
-        if (customDialogs.containsKey(id)) {
-            customDialogs.get(id).dismiss();
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatchDismiss("DismissCustomDialog", DialogRegistry.Kind.CUSTOM, id, null);
+            return;
+        }
+        DialogRegistry.Entry entry = dialogRegistry.get(DialogRegistry.Kind.CUSTOM, id);
+        if (entry != null) {
+            if (entry.dialog != null) {
+                scheduler.cancel(entry.dialog);
+                entry.dialog.dismiss();
+            }
             CustomDialogDismissed(id);
         } else {
             Error("Sorry, a custom dialog with the id " + id + " does not exist.", "DismissCustomDialog");
         }
     }
 
+    @SimpleFunction(description = "Dismisses and frees the custom dialog with the given ID and puts its component back" +
+    " where it was on the screen. The ID can then be used for a new custom dialog.")
+    public void DestroyCustomDialog(final int id) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatchDismiss("DestroyCustomDialog", DialogRegistry.Kind.CUSTOM, id, new Runnable() {
+                @Override
+                public void run() { DestroyCustomDialog(id); }
+            });
+            return;
+        }
+        DialogRegistry.Entry entry = dialogRegistry.get(DialogRegistry.Kind.CUSTOM, id);
+        if (entry != null)
+            dialogRegistry.release(entry);
+        else
+            Error("Sorry, a custom dialog with the id " + id + " does not exist.", "DestroyCustomDialog");
+    }
+
+    public void buildCustomDialog(DialogRegistry.Entry entry) {
+        View view = entry.content;
+        if (entry.originalParent != null) entry.originalParent.removeView(view);
+        view.setVisibility(View.VISIBLE);
+        AlertDialog.Builder builder = createAlertDialogBuilder("CreateCustomDialog", null, null, null, view);
+        dialogRegistry.setDialog(entry, builder.create());
+    }
+
+    public void restoreCustomDialogView(DialogRegistry.Entry entry) {
+        View view = entry.content;
+        if (entry.originalParent == null || view.getParent() == entry.originalParent) return;
+        if (view.getParent() instanceof ViewGroup) ((ViewGroup) view.getParent()).removeView(view);
+        view.setVisibility(entry.originalVisibility);
+        entry.originalParent.addView(view, Math.min(entry.originalIndex, entry.originalParent.getChildCount()),
+            entry.originalLayoutParams);
+    }
+
     @SimpleEvent(description = "This event is called when the custom dialog has been dismissed.")
     public void CustomDialogDismissed(int id) {
         EventDispatcher.dispatchEvent(this, "CustomDialogDismissed", id);
@@ -152,7 +413,12 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
         " method will have no effect.")
     public void ShowLinearProgressDialog(final int id, String title, String message, String icon,
             boolean progressIndeterminacy, int progressColor, int progressMaxValue, boolean cancelable,
-            String cancelButtonText) {        
+            String cancelButtonText) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatchShow("ShowLinearProgressDialog", DialogRegistry.Kind.PROGRESS, id, title, message, icon,
+                progressIndeterminacy, progressColor, progressMaxValue, cancelable, cancelButtonText);
+            return;
+        }
         ProgressBar bar = new ProgressBar(form, null, android.R.attr.progressBarStyleHorizontal);
         bar.setIndeterminate(progressIndeterminacy);
         bar.setPadding(20, 20, 20, 20);
@@ -162,7 +428,6 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
             bar.getProgressDrawable().setColorFilter(new BlendModeColorFilter(progressColor, BlendMode.SRC_IN));
             bar.setMax(progressMaxValue);
         }
-        progressBars.put(id, bar);
 
         AlertDialog.Builder builder = createAlertDialogBuilder("ShowLinearProgressDialog", title, message, icon, null);
         builder.setView(bar);
@@ -175,16 +440,25 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
                 }
             });
 
-        progressDialogs.put(id, showAlertDialog(builder.create()));
+        DialogRegistry.Entry entry = dialogRegistry.register(DialogRegistry.Kind.PROGRESS, id, builder.create(), bar);
+        showAlertDialog(entry.dialog, "ShowLinearProgressDialog", id);
+        dialogRegistry.markShowing(entry);
     }
 
     @SimpleFunction (description = "Dismisses the linear progress dialog that is associated with the given ID.")
-    public void DismissLinearProgressDialog(int id){
-        AlertDialog dialog = progressDialogs.get(id);
-        if (dialog == null){
+    public void DismissLinearProgressDialog(final int id){
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatchDismiss("DismissLinearProgressDialog", DialogRegistry.Kind.PROGRESS, id, new Runnable() {
+                @Override
+                public void run() { LinearProgressDismissed(id); }
+            });
+            return;
+        }
+        DialogRegistry.Entry entry = dialogRegistry.get(DialogRegistry.Kind.PROGRESS, id);
+        if (entry == null){
             Error("The linear progress dialog has not been created yet, or it cannot be found.", "DismissLinearProgressDialog");
         } else {
-            dialog.dismiss();
+            dialogRegistry.release(entry);
             LinearProgressDismissed(id);
         }
     }
@@ -195,37 +469,152 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     }
 
     @SimpleFunction(description = "Sets the current progress of the linear progress dialog to the specified value." +
-    " Does not do anything if the progress bar is in indeterminate mode.")
-    public final void UpdateProgress(int id, int progress) {
-        if (progressBars.containsKey(id) && progressDialogs.containsKey(id)) {
-            ProgressBar bar = progressBars.get(id);
+    " Does not do anything if the progress bar is in indeterminate mode. This block can be called from any thread, and" +
+    " when it is called many times in a row only the latest value for each ID is applied, once per display frame.")
+    public void UpdateProgress(int id, int progress) {
+        // Not handed over with dispatch: the coalescer is thread-safe and already applies the value on the main thread.
+        progressUpdates.post(id, progress);
+    }
+
+    public void applyProgress(int id, int progress) {
+        DialogRegistry.Entry entry = dialogRegistry.get(DialogRegistry.Kind.PROGRESS, id);
+        if (entry != null) {
+            ProgressBar bar = (ProgressBar) entry.content;
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
                 bar.setProgress(progress, true);
             else
                 bar.setProgress(progress);
         } else {
-            Error("The linear progress dialog has not been created yet.", "DismissLinearProgressDialog");
+            Error("The linear progress dialog has not been created yet.", "UpdateProgress");
+        }
+    }
+
+    // The following blocks are related to multi-task progress dialogs.
+
+    @SimpleFunction(description = "Shows a single dialog with one labelled progress bar for each item in labels, for tracking" +
+    " many tasks at once. Rows are numbered from 1 in the order of the labels. Above the rows, the dialog shows the overall" +
+    " progress, the throughput in progress units per second and the estimated time left.")
+    public void ShowMultiProgressDialog(final int id, String title, String message, String icon, YailList labels,
+            int progressColor, int progressMaxValue, boolean cancelable, String cancelButtonText) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatchShow("ShowMultiProgressDialog", DialogRegistry.Kind.MULTI_PROGRESS, id, title, message, icon,
+                labels, progressColor, progressMaxValue, cancelable, cancelButtonText);
+            return;
+        }
+        String[] labelTexts = labels.toStringArray();
+        Spanned[] rowLabels = new Spanned[labelTexts.length];
+        for (int i = 0; i < labelTexts.length; i++)
+            rowLabels[i] = getHtml(labelTexts[i]);
+        MultiProgressView view = new MultiProgressView(form, rowLabels, progressColor, progressMaxValue);
+
+        AlertDialog.Builder builder = createAlertDialogBuilder("ShowMultiProgressDialog", title, message, icon, view);
+
+        if (cancelable)
+            builder.setPositiveButton(getHtml(cancelButtonText), new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    MultiProgressDismissed(id);
+                }
+            });
+
+        DialogRegistry.Entry entry = dialogRegistry.register(DialogRegistry.Kind.MULTI_PROGRESS, id, builder.create(), view);
+        showAlertDialog(entry.dialog, "ShowMultiProgressDialog", id);
+        dialogRegistry.markShowing(entry);
+    }
+
+    @SimpleFunction(description = "Sets the progress of several rows of the multi-task progress dialog at once. rows holds" +
+    " the row numbers, starting from 1, and values holds the new progress of each of them. This block can be called from" +
+    " any thread, and all updates made within a display frame are applied together on the next frame.")
+    public void UpdateProgressBatch(int id, YailList rows, YailList values) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("UpdateProgressBatch", id, rows, values);
+            return;
+        }
+        DialogRegistry.Entry entry = dialogRegistry.get(DialogRegistry.Kind.MULTI_PROGRESS, id);
+        if (entry == null) {
+            Error("The multi-task progress dialog has not been created yet.", "UpdateProgressBatch");
+            return;
+        }
+        if (rows.size() != values.size()) {
+            Error("The rows and values lists must have the same length.", "UpdateProgressBatch");
+            return;
+        }
+
+        MultiProgressView view = (MultiProgressView) entry.content;
+        int[] rowIndices = new int[rows.size()];
+        int[] rowValues = new int[values.size()];
+        try {
+            for (int i = 0; i < rowIndices.length; i++) {
+                rowIndices[i] = Integer.parseInt(rows.get(i).toString()) - 1;
+                rowValues[i] = (int) Double.parseDouble(values.get(i).toString());
+                if (rowIndices[i] < 0 || rowIndices[i] >= view.rowCount()) {
+                    Error("There is no row " + (rowIndices[i] + 1) + " in the multi-task progress dialog.", "UpdateProgressBatch");
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            Error("The rows and values lists must only contain numbers.", "UpdateProgressBatch");
+            return;
+        }
+        view.post(rowIndices, rowValues);
+    }
+
+    @SimpleFunction(description = "Dismisses the multi-task progress dialog that is associated with the given ID.")
+    public void DismissMultiProgressDialog(final int id) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatchDismiss("DismissMultiProgressDialog", DialogRegistry.Kind.MULTI_PROGRESS, id, new Runnable() {
+                @Override
+                public void run() { MultiProgressDismissed(id); }
+            });
+            return;
+        }
+        DialogRegistry.Entry entry = dialogRegistry.get(DialogRegistry.Kind.MULTI_PROGRESS, id);
+        if (entry == null) {
+            Error("The multi-task progress dialog has not been created yet, or it cannot be found.", "DismissMultiProgressDialog");
+        } else {
+            dialogRegistry.release(entry);
+            MultiProgressDismissed(id);
         }
     }
 
+    @SimpleEvent(description = "This event is called when a multi-task progress dialog with the given ID has been dismissed.")
+    public void MultiProgressDismissed(int id) {
+        EventDispatcher.dispatchEvent(this, "MultiProgressDismissed", id);
+    }
+
     // The following blocks are related to text input dialogs.
 
     @SimpleFunction(description = "Shows a text input dialog. The id parameter is an ID to specify the notifier, in case you want to show two dialogs" + 
     " with the same extension. The title parameter is for specifying the title of this dialog. defaultText is the default text for the input" + 
     " in which the user will first see in the textbox when they open the dialog, and hint is the hint of that textbox." + 
-    " Use inputBold, inputItalic, hintColor and inputColor to customize the textbox." + 
+    " Use inputBold, inputItalic, hintColor and inputColor to customize the textbox. inputFont can also be the path of a" +
+    " .ttf or .otf font asset." + 
     " buttonText is the text of the OK button, while cancelButtonText is the text of the cancel button.") 
     public void ShowTextInputDialog(final int id, String title, String message, String defaultText, String icon,
             String hint, int hintColor, boolean inputBold, boolean inputItalic, int inputColor,
             @Options(InputType.class) int inputType, @Options(Font.class) String inputFont, String buttonText,
             boolean cancelable, String cancelButtonText) {
-        final EditText editText = new EditText(form);
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ShowTextInputDialog", id, title, message, defaultText, icon, hint, hintColor, inputBold,
+                inputItalic, inputColor, inputType, inputFont, buttonText, cancelable, cancelButtonText);
+            return;
+        }
+        String poolKey = getPoolKey("ShowTextInputDialog", id, title, message, cancelable);
+        DialogPool.Entry pooled = dialogPool.acquire(poolKey);
+
+        final EditText editText = pooled == null ? new EditText(form) : (EditText) pooled.input;
         editText.setInputType(inputType);
         editText.setHint(hint);
         editText.setHintTextColor(hintColor);
         editText.setText(defaultText);
         editText.setTextColor(inputColor);
-        editText.setTypeface(getFont(inputFont), getTypeface(inputBold, inputItalic));
+        editText.setTypeface(getFont(inputFont, "ShowTextInputDialog"), getTypeface(inputBold, inputItalic));
+
+        if (pooled != null) {
+            showInputDialog(resetPooledDialog(pooled.dialog, "ShowTextInputDialog", title, message, icon, buttonText,
+                cancelButtonText), editText, "ShowTextInputDialog", id);
+            return;
+        }
 
         AlertDialog.Builder builder = createAlertDialogBuilder("ShowTextInputDialog", title, message, icon, (View) editText);
 
@@ -246,7 +635,9 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
                 }
             });
 
-        showAlertDialog(builder.create());
+        AlertDialog dialog = builder.create();
+        dialogPool.offer(poolKey, dialog, editText);
+        showInputDialog(dialog, editText, "ShowTextInputDialog", id);
     }
 
     @SimpleEvent(description = "This event is invoked when the user has pressed the OK button in a text input dialog.")
@@ -259,10 +650,210 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
         EventDispatcher.dispatchEvent(this, "TextInputDialogCanceled", id);
     }
 
+    // The following blocks are related to autocomplete input dialogs.
+
+    @SimpleFunction(description = "Builds the autocomplete vocabulary with the given name from a list of entries on a background" +
+    " thread, replacing any vocabulary with the same name. The vocabulary is built once and can then be used by any number" +
+    " of autocomplete input dialogs. The AutocompleteVocabularyReady event is fired when it is ready.")
+    public void BuildAutocompleteVocabulary(final String name, YailList entries) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("BuildAutocompleteVocabulary", name, entries);
+            return;
+        }
+        final String[] values = entries.toStringArray();
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.uptimeMillis();
+                final PrefixIndex index = PrefixIndex.build(values);
+                final int millis = (int) (SystemClock.uptimeMillis() - start);
+                uiHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        vocabularies.put(name, index);
+                        AutocompleteVocabularyReady(name, index.size(), millis);
+                    }
+                });
+            }
+        });
+    }
+
+    @SimpleEvent(description = "This event is invoked when an autocomplete vocabulary has been built. millis is the time it" +
+    " took to build it.")
+    public void AutocompleteVocabularyReady(String name, int count, int millis) {
+        EventDispatcher.dispatchEvent(this, "AutocompleteVocabularyReady", name, count, millis);
+    }
+
+    @SimpleFunction(description = "Deletes the autocomplete vocabulary with the given name.")
+    public void DeleteAutocompleteVocabulary(String name) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("DeleteAutocompleteVocabulary", name);
+            return;
+        }
+        if (vocabularies.remove(name) == null)
+            Error("The autocomplete vocabulary " + name + " does not exist.", "DeleteAutocompleteVocabulary");
+    }
+
+    @SimpleFunction(description = "Shows a text input dialog that suggests entries of an autocomplete vocabulary starting with" +
+    " the typed text. Build the vocabulary with BuildAutocompleteVocabulary first. Up to maxSuggestions entries are listed" +
+    " below the textbox, and tapping one puts it in the textbox. Like the text input dialog, it fires the GotTextInputDialog" +
+    " and TextInputDialogCanceled events.")
+    public void ShowAutocompleteInputDialog(final int id, String title, String message, String icon, String vocabulary,
+            String defaultText, String hint, final int maxSuggestions, String buttonText, boolean cancelable,
+            String cancelButtonText) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ShowAutocompleteInputDialog", id, title, message, icon, vocabulary, defaultText, hint,
+                maxSuggestions, buttonText, cancelable, cancelButtonText);
+            return;
+        }
+        final PrefixIndex index = vocabularies.get(vocabulary);
+        if (index == null) {
+            Error("The autocomplete vocabulary " + vocabulary + " has not been built yet.", "ShowAutocompleteInputDialog");
+            return;
+        }
+
+        LinearLayout layout = new LinearLayout(form);
+        layout.setOrientation(LinearLayout.VERTICAL);
+
+        final EditText editText = new EditText(form);
+        editText.setHint(hint);
+        editText.setSingleLine(true);
+        editText.setText(defaultText);
+        layout.addView(editText, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        final ArrayAdapter<String> suggestions = new ArrayAdapter<>(form, android.R.layout.simple_list_item_1);
+        ListView listView = new ListView(form);
+        listView.setAdapter(suggestions);
+        layout.addView(listView, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        // Each lookup gets a new generation number, so that suggestions for text that has since changed are dropped.
+        final AtomicInteger generation = new AtomicInteger();
+        final Runnable lookup = new Runnable() {
+            @Override
+            public void run() {
+                final String prefix = editText.getText().toString();
+                final int lookupGeneration = generation.incrementAndGet();
+                getExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (lookupGeneration != generation.get()) return;
+                        final List<String> matches = index.suggest(prefix, maxSuggestions);
+                        uiHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (lookupGeneration != generation.get()) return;
+                                suggestions.setNotifyOnChange(false);
+                                suggestions.clear();
+                                suggestions.addAll(matches);
+                                suggestions.notifyDataSetChanged();
+                            }
+                        });
+                    }
+                });
+            }
+        };
+
+        editText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                uiHandler.removeCallbacks(lookup);
+                uiHandler.postDelayed(lookup, autocompleteDelay);
+            }
+        });
+
+        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long itemId) {
+                String suggestion = suggestions.getItem(position);
+                editText.setText(suggestion);
+                editText.setSelection(suggestion.length());
+            }
+        });
+
+        AlertDialog.Builder builder = createAlertDialogBuilder("ShowAutocompleteInputDialog", title, message, icon, layout);
+
+        builder.setPositiveButton(getHtml(buttonText), new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                hideKeyboard(editText);
+                GotTextInputDialog(id, editText.getText().toString());
+            }
+        });
+
+        if (cancelable)
+            builder.setNegativeButton(getHtml(cancelButtonText), new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    hideKeyboard(editText);
+                    TextInputDialogCanceled(id);
+                }
+            });
+
+        AlertDialog dialog = builder.create();
+        DismissListeners.add(dialog, new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialogInterface) {
+                uiHandler.removeCallbacks(lookup);
+                generation.incrementAndGet();
+            }
+        });
+
+        showAlertDialog(dialog, "ShowAutocompleteInputDialog", id);
+        if (!defaultText.isEmpty()) {
+            uiHandler.removeCallbacks(lookup);
+            lookup.run();
+        }
+    }
+
+    // The following blocks are related to banners.
+
+    @SimpleFunction(description = "Shows a short message in a banner over the screen for BannerDuration milliseconds," +
+    " without opening a dialog. The user can keep using the app while it is shown. Messages shown while another one is" +
+    " on screen wait in a queue; a message that is already showing or waiting with the same ID is not queued again." +
+    " The banner is placed according to GravityVertical and GravityHorizontal and follows LightTheme.")
+    public void ShowBanner(int id, String message) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ShowBanner", id, message);
+            return;
+        }
+        BannerQueue.Style style = new BannerQueue.Style();
+        style.gravity = verticalGravities.get(verticalAlignmentDialog - 1) | horizontalGravities.get(alignHorizontalDialog - 1);
+        style.light = lightTheme;
+        style.duration = bannerDuration;
+        Spanned text = getHtml(message);
+        banners.show(id, text == null ? "" : text, style);
+    }
+
+    @SimpleFunction(description = "Hides the banner and removes all messages waiting to be shown in it.")
+    public void ClearBanners() {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ClearBanners");
+            return;
+        }
+        banners.clear();
+    }
+
+    @SimpleEvent(description = "This event is invoked when the user has tapped a banner. The banner is hidden afterwards.")
+    public void BannerClicked(int id) {
+        EventDispatcher.dispatchEvent(this, "BannerClicked", id);
+    }
+
     // The following blocks are related to custom message dialogs.
 
     @SimpleFunction(description = "Shows a custom message dialog.")
     public void CustomMessageDialog(final int id, String title, String message, String icon, String buttonText) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("CustomMessageDialog", id, title, message, icon, buttonText);
+            return;
+        }
         AlertDialog.Builder builder = createAlertDialogBuilder("CustomMessageDialog", title, message, icon, null);
 
         builder.setPositiveButton(getHtml(buttonText), new DialogInterface.OnClickListener() {
@@ -272,7 +863,7 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
             }
         });
 
-        showAlertDialog(builder.create());
+        showAlertDialog(builder.create(), "CustomMessageDialog", id);
     }
 
     @SimpleEvent(description = "This event is invoked when the user has pressed the button in a custom message dialog.")
@@ -285,10 +876,25 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     @SimpleFunction(description = "Displays a number picker dialog that enables the user to select a number from a predefined range.")
     public void ShowNumberPickerDialog(final int id, String title, String icon, String buttonText,
             String cancelButtonText, String message, int minValue, int maxValue, boolean cancelable) {
-        final NumberPicker numberPicker = new NumberPicker(form);
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ShowNumberPickerDialog", id, title, icon, buttonText, cancelButtonText, message, minValue,
+                maxValue, cancelable);
+            return;
+        }
+        String poolKey = getPoolKey("ShowNumberPickerDialog", id, title, message, cancelable);
+        DialogPool.Entry pooled = dialogPool.acquire(poolKey);
+
+        final NumberPicker numberPicker = pooled == null ? new NumberPicker(form) : (NumberPicker) pooled.input;
         numberPicker.setMaxValue(maxValue);
         numberPicker.setMinValue(minValue);
 
+        if (pooled != null) {
+            numberPicker.setValue(minValue);
+            showAlertDialog(resetPooledDialog(pooled.dialog, "ShowNumberPickerDialog", title, message, icon, buttonText,
+                cancelButtonText), "ShowNumberPickerDialog", id);
+            return;
+        }
+
         AlertDialog.Builder builder = createAlertDialogBuilder("ShowNumberPickerDialog", title, message, icon, numberPicker);
 
         builder.setPositiveButton(getHtml(buttonText), new DialogInterface.OnClickListener() {
@@ -306,7 +912,9 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
                 }
             });
 
-        showAlertDialog(builder.create());
+        AlertDialog dialog = builder.create();
+        dialogPool.offer(poolKey, dialog, numberPicker);
+        showAlertDialog(dialog, "ShowNumberPickerDialog", id);
     }
 
     @SimpleEvent(description = "This event is invoked when the user has pressed the OK button in a number picker dialog.")
@@ -322,13 +930,39 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     // These are the blocks for image dialogs.
 
     @SimpleFunction(description = "Displays an image in a dialog. This requires an absolute path pointing to the image location." + 
-    " All supported file types are PNG, JPEG and JPG. After the user has pressed the button, the extension will fire the ImageDialogClosed event.")
-    public void ShowImageDialog(final int id, String title, String message, String icon, String image, String buttonText) {
+    " All supported file types are PNG, JPEG and JPG. After the user has pressed the button, the extension will fire the ImageDialogClosed event." +
+    " If AsyncImageDecoding is true, the dialog is shown immediately with a loading indicator while the image is decoded in the background.")
+    public void ShowImageDialog(final int id, String title, String message, String icon, final String image, String buttonText) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ShowImageDialog", id, title, message, icon, image, buttonText);
+            return;
+        }
+        final long start = SystemClock.uptimeMillis();
         final ImageView imageView = new ImageView(form);
-        Drawable imageDrawable = getDrawableFromPath(image, "ShowImageDialog");
-        if (imageDrawable != null) imageView.setImageDrawable(imageDrawable);
+        View content = imageView;
+        Bitmap imageBitmap = null;
+        boolean decodeInBackground = false;
+
+        if (asyncImageDecoding && image != null) {
+            imageBitmap = imageCache.lookup(getImageCacheKey(image));
+            decodeInBackground = imageBitmap == null;
+        } else {
+            Drawable imageDrawable = getDrawableFromPath(image, "ShowImageDialog");
+            if (imageDrawable != null) imageBitmap = ((BitmapDrawable) imageDrawable).getBitmap();
+        }
+        if (imageBitmap != null) imageView.setImageBitmap(imageBitmap);
+
+        final ProgressBar loadingIndicator = new ProgressBar(form);
+        if (decodeInBackground) {
+            FrameLayout frame = new FrameLayout(form);
+            frame.addView(imageView);
+            loadingIndicator.setPadding(20, 20, 20, 20);
+            frame.addView(loadingIndicator, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.CENTER));
+            content = frame;
+        }
 
-        AlertDialog.Builder builder = createAlertDialogBuilder("ShowImageDialog", title, message, icon, imageView);
+        AlertDialog.Builder builder = createAlertDialogBuilder("ShowImageDialog", title, message, icon, content);
 
         builder.setPositiveButton(getHtml(buttonText), new DialogInterface.OnClickListener() {
             @Override
@@ -337,7 +971,66 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
             }
         });
 
-        showAlertDialog(builder.create());
+        final AlertDialog dialog = builder.create();
+        if (decodeInBackground) {
+            // The dialog may still be waiting in the scheduler's queue when the image is ready, so the image is applied
+            // unless the dialog has been dismissed, and ImageDialogLoaded waits until it is on screen.
+            final AtomicBoolean dismissed = new AtomicBoolean();
+            final Future<?> decode = getExecutor().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final Bitmap bitmap = decodeBitmap(image);
+                        imageCache.store(getImageCacheKey(image), bitmap);
+                        if (Thread.currentThread().isInterrupted()) return;
+                        uiHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (dismissed.get()) return;
+                                loadingIndicator.setVisibility(View.GONE);
+                                if (bitmap != null) {
+                                    imageView.setImageBitmap(bitmap);
+                                    if (dialog.isShowing())
+                                        ImageDialogLoaded(id, (int) (SystemClock.uptimeMillis() - start));
+                                }
+                            }
+                        });
+                    } catch (final IOException | RuntimeException e) {
+                        // MediaUtil can also fail with a SecurityException or IllegalArgumentException, which the
+                        // executor would swallow and leave the indicator spinning.
+                        uiHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (dismissed.get()) return;
+                                loadingIndicator.setVisibility(View.GONE);
+                                Error("Error while trying to read the assets: " + e.getMessage(), "ShowImageDialog");
+                            }
+                        });
+                    }
+                }
+            });
+            DismissListeners.add(dialog, new DialogInterface.OnDismissListener() {
+                @Override
+                public void onDismiss(DialogInterface dialogInterface) {
+                    dismissed.set(true);
+                    decode.cancel(true);
+                }
+            });
+        }
+
+        showAlertDialog(dialog, "ShowImageDialog", id, new Runnable() {
+            @Override
+            public void run() {
+                if (imageView.getDrawable() != null)
+                    ImageDialogLoaded(id, (int) (SystemClock.uptimeMillis() - start));
+            }
+        });
+    }
+
+    @SimpleEvent(description = "This event is invoked when the image of an image dialog has been decoded and displayed." +
+        " millis is the time it took to load the image.")
+    public void ImageDialogLoaded(int id, int millis) {
+        EventDispatcher.dispatchEvent(this, "ImageDialogLoaded", id, millis);
     }
 
     @SimpleEvent(description = "This event is invoked when the user has pressed the button in an image dialog.")
@@ -345,24 +1038,158 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
         EventDispatcher.dispatchEvent(this, "ImageDialogClosed", id);
     }
 
+    @SimpleFunction(description = "Shows an image dialog for images too large to be loaded at once, such as scanned" +
+    " documents and maps. Only the part of the image that is on screen is decoded, at the detail needed for the current" +
+    " zoom, so memory use does not grow with the size of the image. Pinch or double tap to zoom and drag to pan." +
+    " The ImageDialogLoaded event is fired once the image can be seen, and ImageDialogClosed when the button is pressed.")
+    public void ShowLargeImageDialog(final int id, String title, String image, String buttonText) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ShowLargeImageDialog", id, title, image, buttonText);
+            return;
+        }
+        final long start = SystemClock.uptimeMillis();
+        DisplayMetrics displayMetrics = form.getResources().getDisplayMetrics();
+        // Room for the tiles on screen twice over, so that panning back and forth does not decode them again.
+        int tileCacheKilobytes = displayMetrics.widthPixels * displayMetrics.heightPixels * 4 * 2 / 1024;
+
+        final TiledImageView imageView = new TiledImageView(form, getExecutor(), uiHandler, tileCacheKilobytes,
+            new TiledImageView.Listener() {
+                @Override
+                public void onLoaded() {
+                    ImageDialogLoaded(id, (int) (SystemClock.uptimeMillis() - start));
+                }
+
+                @Override
+                public void onError(IOException e) {
+                    Error("Error while trying to read the assets: " + e.getMessage(), "ShowLargeImageDialog");
+                }
+            });
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+            displayMetrics.heightPixels * 3 / 5));
+
+        AlertDialog.Builder builder = createAlertDialogBuilder("ShowLargeImageDialog", title, null, null, imageView);
+
+        builder.setPositiveButton(getHtml(buttonText), new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                ImageDialogClosed(id);
+            }
+        });
+
+        AlertDialog dialog = builder.create();
+        DismissListeners.add(dialog, new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialogInterface) {
+                imageView.release();
+            }
+        });
+
+        imageView.open(getImageSource(image), displayMetrics.widthPixels, displayMetrics.heightPixels);
+        showAlertDialog(dialog, "ShowLargeImageDialog", id);
+    }
+
+    @SimpleFunction(description = "Decodes the icons and images at the given paths on a background thread and keeps them in" +
+    " the image cache, so that dialogs using them later show without waiting for them to load. Paths ending in .ttf or .otf" +
+    " are loaded into the font cache instead. Call it in Screen.Initialize." +
+    " The AssetsPreloaded event is fired when all paths have been loaded. Make sure ImageCacheSize is large enough to" +
+    " hold them.")
+    public void PreloadAssets(YailList paths) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("PreloadAssets", paths);
+            return;
+        }
+        final String[] pathArray = paths.toStringArray();
+        final long start = SystemClock.uptimeMillis();
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                int loaded = 0;
+                for (final String path : pathArray) {
+                    try {
+                        if (isFontPath(path)) {
+                            getTypefaceFromPath(path);
+                            loaded++;
+                        } else if (getBitmapFromPath(path) != null) {
+                            loaded++;
+                        }
+                    } catch (final IOException | RuntimeException e) {
+                        uiHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                Error("Error while trying to read the asset " + path + ": " + e.getMessage(), "PreloadAssets");
+                            }
+                        });
+                    }
+                }
+                final int count = loaded;
+                uiHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        AssetsPreloaded(count, (int) (SystemClock.uptimeMillis() - start));
+                    }
+                });
+            }
+        });
+    }
+
+    @SimpleEvent(description = "This event is invoked when PreloadAssets has finished. count is the number of assets that" +
+        " were loaded and millis is the time it took.")
+    public void AssetsPreloaded(int count, int millis) {
+        EventDispatcher.dispatchEvent(this, "AssetsPreloaded", count, millis);
+    }
+
+    @SimpleFunction(description = "Deletes the copies of large image files kept by the thumbnail cache. This is done in" +
+    " the background.")
+    public void ClearThumbnailCache() {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ClearThumbnailCache");
+            return;
+        }
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                thumbnailCache.clear();
+            }
+        });
+    }
+
+    @SimpleFunction(description = "Removes all decoded icons and images from the image cache.")
+    public void ClearImageCache() {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ClearImageCache");
+            return;
+        }
+        imageCache.evictAll();
+    }
+
     // These are the blocks for custom choose dialogs.
 
     @SimpleFunction(description = "Shows a custom choose dialog. The id parameter is an ID to specify the notifier, in case you want to show two dialogs"
     + " with the same extension. The title and message parameter are for specifying the title and message of this dialog respectively. " + 
     " When the user has tapped button1 or button2 in this dialog, the extension fires the GotCustomChooseDialog event. " + 
     "If it is canceled, the extension will call the CustomChooseDialogCanceled event.") 
-    public void CustomChooseDialog(final int id, String message, String title, String icon, final String button1Text,
-            final String button2Text, String cancelButtonText, boolean cancelable) {
+    public void CustomChooseDialog(final int id, String message, String title, String icon, String button1Text,
+            String button2Text, String cancelButtonText, boolean cancelable) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("CustomChooseDialog", id, message, title, icon, button1Text, button2Text, cancelButtonText,
+                cancelable);
+            return;
+        }
         AlertDialog.Builder builder = createAlertDialogBuilder("CustomChooseDialog", title, message, icon, null);
 
-        builder.setPositiveButton(getHtml(button1Text), new DialogInterface.OnClickListener() {
+        Spanned button1 = getHtml(button1Text);
+        Spanned button2 = getHtml(button2Text);
+        final String choice1 = button1 == null ? null : button1.toString();
+        final String choice2 = button2 == null ? null : button2.toString();
+
+        builder.setPositiveButton(button1, new DialogInterface.OnClickListener() {
             @Override
-            public void onClick(DialogInterface dialog, int which) { GotCustomChooseDialog(id, getHtml(button1Text).toString()); }
+            public void onClick(DialogInterface dialog, int which) { GotCustomChooseDialog(id, choice1); }
         });
 
-        builder.setNeutralButton(getHtml(button2Text), new DialogInterface.OnClickListener() {
+        builder.setNeutralButton(button2, new DialogInterface.OnClickListener() {
             @Override
-            public void onClick(DialogInterface dialog, int which) { GotCustomChooseDialog(id, getHtml(button2Text).toString()); }
+            public void onClick(DialogInterface dialog, int which) { GotCustomChooseDialog(id, choice2); }
         });
 
         if (cancelable)
@@ -371,7 +1198,7 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
                 public void onClick(DialogInterface dialog, int id13) { CustomChooseDialogCanceled(id); }
             });
         
-        showAlertDialog(builder.create());
+        showAlertDialog(builder.create(), "CustomChooseDialog", id);
     }
 
     @SimpleEvent(description = "This event is invoked when the user has pressed button 1 or button 2 in a custom choose dialog.")
@@ -384,28 +1211,156 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
         EventDispatcher.dispatchEvent(this, "CustomChooseDialogCanceled", id);
     }
 
-    // The following blocks are related to password input dialogs.
-    
-    @SimpleFunction(description = "Shows a password input dialog. The id parameter is an ID to specify the notifier, in case you want to show two dialogs" + 
-    " with the same extension. The title parameter is for specifying the title of this dialog. defaultInputText is the default text for the input" + 
-    " in which the user will first see in the textbox when they open the dialog, and hint is the hint of that textbox." + 
-    " Use inputBold, inputItalic, hintColor and inputColor to customize the textbpx, and use the property blocks to specify inputFont." + 
-    " buttonText is the text of the OK button, while cancelButtonText is the text of the cancel button.") 
-    public void ShowPasswordInputDialog(final int id, String title, String message, String icon, String defaultInputText, String hint, 
-            int hintColor, int inputColor, @Options(Font.class) String inputFont, boolean inputBold, boolean inputItalic,
-            String buttonText, String cancelButtonText, boolean cancelable) {
-        final EditText editText = new EditText(form);
-        editText.setHint(hint);
-        editText.setHintTextColor(hintColor);
-        editText.setText(defaultInputText);
-        editText.setTextColor(inputColor);
-        editText.setTypeface(getFont(inputFont), getTypeface(inputBold, inputItalic));
-        editText.setTransformationMethod(new PasswordTransformationMethod());
+    // The following blocks are related to list chooser dialogs.
+
+    @SimpleFunction(description = "Shows a dialog to choose from a list of items. Only the rows on screen are created, so the" +
+    " list can hold many thousands of items. If multiSelect is false, tapping an item chooses it and closes the dialog;" +
+    " otherwise the user checks any number of items and presses the OK button. If searchable is true, a search box" +
+    " above the list filters the items containing the typed text. Either way the extension fires the GotListChooserDialog" +
+    " event with the chosen items and their indices.")
+    public void ShowListChooserDialog(final int id, String title, String icon, YailList items, boolean multiSelect,
+            boolean searchable, String searchHint, String buttonText, boolean cancelable, String cancelButtonText) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ShowListChooserDialog", id, title, icon, items, multiSelect, searchable, searchHint,
+                buttonText, cancelable, cancelButtonText);
+            return;
+        }
+        Typeface itemFont = Font.Default.toUnderlyingValue().equals(dialogFont) ? null
+            : getFont(dialogFont, "ShowListChooserDialog");
+        final ListChooserAdapter adapter = new ListChooserAdapter(LayoutInflater.from(form), items.toStringArray(),
+            multiSelect, itemFont, getExecutor(), uiHandler);
+
+        LinearLayout layout = new LinearLayout(form);
+        layout.setOrientation(LinearLayout.VERTICAL);
+
+        final EditText searchBox = new EditText(form);
+        if (searchable) {
+            searchBox.setHint(searchHint);
+            searchBox.setSingleLine(true);
+            searchBox.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
 
-        AlertDialog.Builder builder = createAlertDialogBuilder("ShowPasswordInputDialog", title, message, icon, editText);
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {}
 
-        builder.setPositiveButton(getHtml(buttonText), new DialogInterface.OnClickListener() {
-            @Override
+                @Override
+                public void afterTextChanged(Editable s) {
+                    adapter.filter(s.toString());
+                }
+            });
+            layout.addView(searchBox, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
+        }
+
+        ListView listView = new ListView(form);
+        listView.setAdapter(adapter);
+        listView.setFastScrollEnabled(true);
+        layout.addView(listView, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        AlertDialog.Builder builder = createAlertDialogBuilder("ShowListChooserDialog", title, null, icon, layout);
+
+        if (multiSelect)
+            builder.setPositiveButton(getHtml(buttonText), new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    int[] indices = adapter.getCheckedIndices();
+                    List<String> chosen = new ArrayList<>(indices.length);
+                    List<Integer> chosenIndices = new ArrayList<>(indices.length);
+                    for (int index : indices) {
+                        chosen.add(adapter.getItemAt(index));
+                        chosenIndices.add(index + 1);
+                    }
+                    hideKeyboard(searchBox);
+                    GotListChooserDialog(id, YailList.makeList(chosen), YailList.makeList(chosenIndices));
+                }
+            });
+
+        if (cancelable)
+            builder.setNegativeButton(getHtml(cancelButtonText), new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    hideKeyboard(searchBox);
+                    ListChooserDialogCanceled(id);
+                }
+            });
+
+        final AlertDialog dialog = builder.create();
+
+        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long itemId) {
+                if (adapter.isMultiSelect()) {
+                    adapter.toggle(position, view);
+                    return;
+                }
+                int index = adapter.getItemIndex(position);
+                hideKeyboard(searchBox);
+                dialog.dismiss();
+                GotListChooserDialog(id, YailList.makeList(Arrays.asList(adapter.getItemAt(index))),
+                    YailList.makeList(Arrays.asList(index + 1)));
+            }
+        });
+
+        DismissListeners.add(dialog, new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialogInterface) {
+                adapter.cancelFilter();
+            }
+        });
+
+        showAlertDialog(dialog, "ShowListChooserDialog", id);
+    }
+
+    @SimpleEvent(description = "This event is invoked when the user has chosen from a list chooser dialog. items holds the" +
+    " chosen items and indices holds their positions in the original list, starting from 1.")
+    public void GotListChooserDialog(int id, YailList items, YailList indices) {
+        EventDispatcher.dispatchEvent(this, "GotListChooserDialog", id, items, indices);
+    }
+
+    @SimpleEvent(description = "This event is invoked when the user has pressed the cancel button in a list chooser dialog.")
+    public void ListChooserDialogCanceled(int id) {
+        EventDispatcher.dispatchEvent(this, "ListChooserDialogCanceled", id);
+    }
+
+    // The following blocks are related to password input dialogs.
+    
+    @SimpleFunction(description = "Shows a password input dialog. The id parameter is an ID to specify the notifier, in case you want to show two dialogs" + 
+    " with the same extension. The title parameter is for specifying the title of this dialog. defaultInputText is the default text for the input" + 
+    " in which the user will first see in the textbox when they open the dialog, and hint is the hint of that textbox." + 
+    " Use inputBold, inputItalic, hintColor and inputColor to customize the textbpx, and use the property blocks to specify inputFont." + 
+    " inputFont can also be the path of a .ttf or .otf font asset." +
+    " buttonText is the text of the OK button, while cancelButtonText is the text of the cancel button.") 
+    public void ShowPasswordInputDialog(final int id, String title, String message, String icon, String defaultInputText, String hint, 
+            int hintColor, int inputColor, @Options(Font.class) String inputFont, boolean inputBold, boolean inputItalic,
+            String buttonText, String cancelButtonText, boolean cancelable) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ShowPasswordInputDialog", id, title, message, icon, defaultInputText, hint, hintColor,
+                inputColor, inputFont, inputBold, inputItalic, buttonText, cancelButtonText, cancelable);
+            return;
+        }
+        String poolKey = getPoolKey("ShowPasswordInputDialog", id, title, message, cancelable);
+        DialogPool.Entry pooled = dialogPool.acquire(poolKey);
+
+        final EditText editText = pooled == null ? new EditText(form) : (EditText) pooled.input;
+        editText.setHint(hint);
+        editText.setHintTextColor(hintColor);
+        editText.setText(defaultInputText);
+        editText.setTextColor(inputColor);
+        editText.setTypeface(getFont(inputFont, "ShowPasswordInputDialog"), getTypeface(inputBold, inputItalic));
+        editText.setTransformationMethod(PasswordTransformationMethod.getInstance());
+
+        if (pooled != null) {
+            showInputDialog(resetPooledDialog(pooled.dialog, "ShowPasswordInputDialog", title, message, icon, buttonText,
+                cancelButtonText), editText, "ShowPasswordInputDialog", id);
+            return;
+        }
+
+        AlertDialog.Builder builder = createAlertDialogBuilder("ShowPasswordInputDialog", title, message, icon, editText);
+
+        builder.setPositiveButton(getHtml(buttonText), new DialogInterface.OnClickListener() {
+            @Override
             public void onClick(DialogInterface dialog, int which) {
                 GotPasswordInputDialog(id, editText.getText().toString());
                 ((InputMethodManager) form.getSystemService(Context.INPUT_METHOD_SERVICE)).hideSoftInputFromWindow(editText.getWindowToken(), 0);
@@ -421,7 +1376,9 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
                 }
             });
 
-        showAlertDialog(builder.create());
+        AlertDialog dialog = builder.create();
+        dialogPool.offer(poolKey, dialog, editText);
+        showInputDialog(dialog, editText, "ShowPasswordInputDialog", id);
     }
 
     @SimpleEvent(description = "This event is invoked when the user has entered a password in a password input dialog.")
@@ -434,62 +1391,481 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
         EventDispatcher.dispatchEvent(this, "PasswordInputDialogCanceled", id);
     }
 
+    // The following blocks are related to live input of text and password input dialogs.
+
+    @SimpleEvent(description = "This event is invoked while the user is typing in a text or password input dialog, once" +
+    " they have stopped typing for TextChangedInterval milliseconds. It is only fired if TextChangedInterval is above 0.")
+    public void TextChanged(int id, String text) {
+        EventDispatcher.dispatchEvent(this, "TextChanged", id, text);
+    }
+
+    @SimpleFunction(description = "Sets the validation rule of the text or password input dialogs with the given ID. The OK" +
+    " button is only enabled while the input matches the regex and its length is between minLength and maxLength." +
+    " Use an empty regex or a maxLength of 0 to leave that part out. The rule is checked in the background as the user types.")
+    public void SetInputValidation(int id, String regex, int minLength, int maxLength) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("SetInputValidation", id, regex, minLength, maxLength);
+            return;
+        }
+        try {
+            inputValidations.put(id, new InputValidation(regex, Math.max(0, minLength), Math.max(0, maxLength)));
+        } catch (PatternSyntaxException e) {
+            Error("The regex is not valid: " + e.getDescription(), "SetInputValidation");
+        }
+    }
+
+    @SimpleFunction(description = "Removes the validation rule of the text or password input dialogs with the given ID.")
+    public void ClearInputValidation(int id) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ClearInputValidation", id);
+            return;
+        }
+        inputValidations.remove(id);
+    }
+
+    // The following blocks are related to dialog templates.
+
+    @SimpleFunction(description = "Defines a reusable dialog template. The theme, icon and texts are prepared once, so showing the" +
+    " template is faster than building a new dialog every time. Texts can contain placeholders such as {name}, which are filled" +
+    " in by ShowFromTemplate. A Message template fires CustomMessageDialogClosed and ignores button2Text, cancelButtonText and" +
+    " cancelable. A Choose template fires GotCustomChooseDialog and CustomChooseDialogCanceled. The template keeps the" +
+    " appearance properties that were set when it was defined.")
+    public void DefineDialogTemplate(String templateId, @Options(DialogType.class) String type, String title, String message,
+            String icon, String button1Text, String button2Text, String cancelButtonText, boolean cancelable) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("DefineDialogTemplate", templateId, type, title, message, icon, button1Text, button2Text,
+                cancelButtonText, cancelable);
+            return;
+        }
+        if (DialogType.fromUnderlyingValue(type) == null) {
+            Error("Sorry, " + type + " is not a valid dialog type for a template.", "DefineDialogTemplate");
+            return;
+        }
+        boolean choose = DialogType.Choose.toUnderlyingValue().equals(type);
+
+        Bitmap iconBitmap = null;
+        if (icon != null) {
+            try {
+                iconBitmap = getBitmapFromPath(icon);
+            } catch (IOException e) {
+                Error("Error while trying to read the assets: " + e.getMessage(), "DefineDialogTemplate");
+            }
+        }
+
+        dialogTemplates.put(templateId, new DialogTemplate(type, getTheme(), html, iconBitmap, choose && cancelable,
+            prepareTemplateText(title), prepareTemplateText(message), prepareTemplateText(button1Text),
+            choose ? prepareTemplateText(button2Text) : null, choose ? prepareTemplateText(cancelButtonText) : null));
+    }
+
+    @SimpleFunction(description = "Shows a dialog from a template defined with DefineDialogTemplate. substitutions is a dictionary" +
+    " whose keys are placeholder names; each {name} placeholder is replaced with the matching value. The id is passed to" +
+    " the events fired by the dialog.")
+    public void ShowFromTemplate(String templateId, final int id, YailDictionary substitutions) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ShowFromTemplate", templateId, id, substitutions);
+            return;
+        }
+        DialogTemplate template = dialogTemplates.get(templateId);
+        if (template == null) {
+            Error("Sorry, a dialog template with the id " + templateId + " does not exist.", "ShowFromTemplate");
+            return;
+        }
+
+        long buildStart = metrics.start();
+        long buildAllocations = metrics.startAllocations();
+        long htmlStart = metrics.start();
+        boolean choose = DialogType.Choose.toUnderlyingValue().equals(template.type);
+        Spanned title = fillTemplateText(template, template.title, substitutions);
+        Spanned message = fillTemplateText(template, template.message, substitutions);
+        Spanned button1 = fillTemplateText(template, template.button1, substitutions);
+        Spanned button2 = choose ? fillTemplateText(template, template.button2, substitutions) : null;
+        Spanned cancelButton = choose && template.cancelable
+            ? fillTemplateText(template, template.cancelButton, substitutions) : null;
+        metrics.record("ShowFromTemplate", DialogMetrics.HTML, htmlStart);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(form, template.theme)
+            .setTitle(title)
+            .setMessage(message)
+            .setIcon(template.icon == null ? null : new BitmapDrawable(form.getResources(), template.icon))
+            .setCancelable(dismissWhenBackgroundClicked);
+
+        if (choose) {
+            final String choice1 = button1 == null ? null : button1.toString();
+            final String choice2 = button2 == null ? null : button2.toString();
+
+            builder.setPositiveButton(button1, new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) { GotCustomChooseDialog(id, choice1); }
+            });
+
+            builder.setNeutralButton(button2, new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) { GotCustomChooseDialog(id, choice2); }
+            });
+
+            if (template.cancelable)
+                builder.setNegativeButton(cancelButton, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) { CustomChooseDialogCanceled(id); }
+                });
+        } else {
+            builder.setPositiveButton(button1, new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    CustomMessageDialogClosed(id);
+                }
+            });
+        }
+
+        AlertDialog dialog = builder.create();
+        metrics.record("ShowFromTemplate", DialogMetrics.BUILD, buildStart);
+        metrics.recordAllocations("ShowFromTemplate", DialogMetrics.BUILD, buildAllocations);
+        showAlertDialog(dialog, "ShowFromTemplate", id);
+    }
+
+    @SimpleFunction(description = "Removes the dialog template with the given template ID.")
+    public void DeleteDialogTemplate(String templateId) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("DeleteDialogTemplate", templateId);
+            return;
+        }
+        if (dialogTemplates.remove(templateId) == null)
+            Error("Sorry, a dialog template with the id " + templateId + " does not exist.", "DeleteDialogTemplate");
+    }
+
+    DialogTemplate.Text prepareTemplateText(String src) {
+        DialogTemplate.Text text = DialogTemplate.Text.parse(src);
+        if (text != null && !text.hasPlaceholders()) text.prepared = getHtml(src);
+        return text;
+    }
+
+    Spanned fillTemplateText(DialogTemplate template, DialogTemplate.Text text, YailDictionary substitutions) {
+        if (text == null) return null;
+        if (text.prepared != null) return text.prepared;
+        return getHtml(text.fill(substitutions, template.html), template.html);
+    }
+
+    // The following blocks are related to dialog metrics.
+
+    @SimpleFunction(description = "Returns the timings recorded while MetricsEnabled is true, as a dictionary of block names." +
+    " For each block there is a dictionary of phases: build (creating the dialog), decode (loading the icon or image)," +
+    " html (parsing title and message), show (the show call itself), firstFrame (from showing the dialog until it is" +
+    " first drawn) and response (from showing the dialog until it is closed). Each phase holds count, mean, p50, p90," +
+    " p99 and max, in milliseconds. The build and show phases also hold allocatedKB, the average memory allocated" +
+    " on the main thread.")
+    public YailDictionary GetDialogMetrics() {
+        checkThread("GetDialogMetrics");
+        return metrics.toDictionary();
+    }
+
+    @SimpleFunction(description = "Removes all recorded dialog timings.")
+    public void ResetDialogMetrics() {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ResetDialogMetrics");
+            return;
+        }
+        metrics.reset();
+    }
+
+    @SimpleEvent(description = "This event is invoked every MetricsReportInterval milliseconds while MetricsEnabled is true." +
+    " metrics has the same format as the result of GetDialogMetrics.")
+    public void MetricsReport(YailDictionary metrics) {
+        EventDispatcher.dispatchEvent(this, "MetricsReport", metrics);
+    }
+
+    // The following blocks are related to prewarming.
+
+    @SimpleFunction(description = "Builds a throwaway dialog of each of the given types while the app is idle, so that the" +
+    " first dialog of that type the user sees does not have to wait for its classes, theme and layouts to be loaded." +
+    " Use the PrewarmType values, such as TextInput or NumberPicker. One type is built each time the app becomes idle," +
+    " and the DialogsPrewarmed event is fired when all are done. Call it in Screen.Initialize.")
+    public void PrewarmDialogs(YailList types) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("PrewarmDialogs", types);
+            return;
+        }
+        final ArrayDeque<PrewarmType> pending = new ArrayDeque<>();
+        for (String type : types.toStringArray()) {
+            PrewarmType dialogType = PrewarmType.fromUnderlyingValue(type);
+            if (dialogType == null)
+                Error("Sorry, " + type + " is not a valid dialog type.", "PrewarmDialogs");
+            else if (!prewarmedTypes.contains(dialogType) && !shownTypes.contains(dialogType) && !pending.contains(dialogType))
+                pending.add(dialogType);
+        }
+        if (pending.isEmpty()) {
+            DialogsPrewarmed(0, 0);
+            return;
+        }
+
+        final int count = pending.size();
+        MessageQueue.IdleHandler prewarmer = new MessageQueue.IdleHandler() {
+            int millis;
+
+            @Override
+            public boolean queueIdle() {
+                long start = SystemClock.uptimeMillis();
+                PrewarmType dialogType = pending.poll();
+                prewarmDialog(dialogType);
+                prewarmedTypes.add(dialogType);
+                millis += (int) (SystemClock.uptimeMillis() - start);
+                if (!pending.isEmpty()) return true;
+                prewarmers.remove(this);
+                DialogsPrewarmed(count, millis);
+                return false;
+            }
+        };
+        prewarmers.add(prewarmer);
+        Looper.myQueue().addIdleHandler(prewarmer);
+    }
+
+    @SimpleEvent(description = "This event is invoked when PrewarmDialogs has finished. count is the number of dialog types" +
+    " that were built and millis is the time it took, which the first dialogs of those types no longer have to spend.")
+    public void DialogsPrewarmed(int count, int millis) {
+        EventDispatcher.dispatchEvent(this, "DialogsPrewarmed", count, millis);
+    }
+
+    @SimpleEvent(description = "This event is invoked the first time a dialog of a given type is shown. millis is the time" +
+    " from building to showing the dialog, and prewarmed tells whether the type had been prewarmed with PrewarmDialogs" +
+    " beforehand, so that warm and cold show times can be compared.")
+    public void FirstDialogShown(String type, int millis, boolean prewarmed) {
+        EventDispatcher.dispatchEvent(this, "FirstDialogShown", type, millis, prewarmed);
+    }
+
+    // Goes through the same steps as showing a dialog of the type, except for adding its window.
+    public void prewarmDialog(PrewarmType type) {
+        AlertDialog.Builder builder = new AlertDialog.Builder(form, getTheme())
+            .setTitle(getHtml(" "))
+            .setMessage(getHtml(" "))
+            .setPositiveButton(getHtml(" "), null);
+
+        if (type == PrewarmType.TextInput || type == PrewarmType.PasswordInput) {
+            EditText editText = new EditText(form);
+            if (type == PrewarmType.PasswordInput)
+                editText.setTransformationMethod(PasswordTransformationMethod.getInstance());
+            builder.setView(editText).setNegativeButton(getHtml(" "), null);
+        } else if (type == PrewarmType.NumberPicker) {
+            builder.setView(new NumberPicker(form)).setNegativeButton(getHtml(" "), null);
+        } else if (type == PrewarmType.Choose) {
+            builder.setNeutralButton(getHtml(" "), null).setNegativeButton(getHtml(" "), null);
+        }
+
+        // Creating the dialog inflates its decor and content views without showing it.
+        AlertDialog dialog = builder.create();
+        dialog.create();
+    }
+
+    // The following blocks are related to the dialog scheduler.
+
+    @SimpleFunction(description = "Sets the priority of the dialogs with the given ID while SchedulerEnabled is true." +
+    " Waiting dialogs with a higher priority are shown first. The default priority is 0.")
+    public void SetDialogPriority(int id, int priority) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("SetDialogPriority", id, priority);
+            return;
+        }
+        if (priority == 0)
+            dialogPriorities.remove(id);
+        else
+            dialogPriorities.put(id, priority);
+    }
+
+    // The following blocks are related to the lifetime of dialogs kept by ID.
+
+    @SimpleFunction(description = "Dismisses and forgets the custom dialog, the linear progress dialog and the multi-task" +
+    " progress dialog with the given ID, so that the ID can be used again and the memory of the dialog is freed. The component of a custom dialog is put" +
+    " back where it was on the screen.")
+    public void ReleaseDialog(int id) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ReleaseDialog", id);
+            return;
+        }
+        if (dialogRegistry.release(id) == 0)
+            Error("Sorry, a dialog with the id " + id + " does not exist.", "ReleaseDialog");
+    }
+
+    // The following blocks are related to pooled input dialogs.
+
+    @SimpleFunction(description = "Releases all input dialogs that are kept for reuse by the dialog pool.")
+    public void ReleasePooledDialogs() {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ReleasePooledDialogs");
+            return;
+        }
+        dialogPool.clear();
+    }
+
+    // An AlertDialog hides an empty title or a missing message once it has been shown, so those are part of the key.
+    public String getPoolKey(String methodName, int id, String title, String message, boolean cancelable) {
+        return methodName + ":" + id + ":" + getTheme() + ":" + cancelable + ":" + (title == null || title.isEmpty()) +
+            ":" + (message == null);
+    }
+
+    public AlertDialog resetPooledDialog(AlertDialog dialog, String methodName, String title, String message, String icon,
+            String buttonText, String cancelButtonText) {
+        dialog.setTitle(getHtml(title));
+        dialog.setMessage(getHtml(message));
+        dialog.setIcon(getDrawableFromPath(icon, methodName));
+        dialog.setCancelable(dismissWhenBackgroundClicked);
+
+        Button positiveButton = dialog.getButton(DialogInterface.BUTTON_POSITIVE);
+        if (positiveButton != null) positiveButton.setText(getHtml(buttonText));
+        Button negativeButton = dialog.getButton(DialogInterface.BUTTON_NEGATIVE);
+        if (negativeButton != null) negativeButton.setText(getHtml(cancelButtonText));
+        return dialog;
+    }
+
     public AlertDialog.Builder createAlertDialogBuilder(String methodName, String title, String message, String icon, View childView) {
+        // Restarted by every build until the first show, since a dialog that is built but never shown would leave a
+        // stale start behind.
+        PrewarmType dialogType = blockPrewarmTypes.get(methodName);
+        if (dialogType != null && !shownTypes.contains(dialogType))
+            firstShowStarts.put(dialogType, SystemClock.uptimeMillis());
+        long buildStart = metrics.start();
+        long buildAllocations = metrics.startAllocations();
+        long htmlStart = metrics.start();
+        Spanned titleText = getHtml(title);
+        Spanned messageText = getHtml(message);
+        metrics.record(methodName, DialogMetrics.HTML, htmlStart);
+
         AlertDialog.Builder builder = new AlertDialog.Builder(form, getTheme())
-            .setTitle(getHtml(title))
-            .setMessage(getHtml(message))
+            .setTitle(titleText)
+            .setMessage(messageText)
             .setView(childView)
             .setIcon(getDrawableFromPath(icon, methodName))
             .setCancelable(dismissWhenBackgroundClicked);
 
+        metrics.record(methodName, DialogMetrics.BUILD, buildStart);
+        metrics.recordAllocations(methodName, DialogMetrics.BUILD, buildAllocations);
         return builder;
     }
 
     public Drawable getDrawableFromPath(String path, String event) {
         if (path == null) return null;
+        try {
+            long decodeStart = metrics.start();
+            Bitmap bitmap = getBitmapFromPath(path);
+            metrics.record(event, DialogMetrics.DECODE, decodeStart);
+            return bitmap == null ? null : new BitmapDrawable(form.getResources(), bitmap);
+        } catch (IOException e) {
+            Error("Error while trying to read the assets: " + e.getMessage(), event);
+            return null;
+        }
+    }
+
+    public Bitmap getBitmapFromPath(String path) throws IOException {
+        String key = getImageCacheKey(path);
+        Bitmap bitmap = imageCache.lookup(key);
+        if (bitmap == null) {
+            bitmap = decodeBitmap(path);
+            imageCache.store(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    public String getImageCacheKey(String path) {
+        if (path.startsWith("//"))
+            return form.isRepl() ? "repl:" + getReplAssetPath(path) : "asset:" + path.substring(2);
+        return "media:" + path;
+    }
+
+    public String getReplAssetPath(String path) {
+        String absolutePathOfAsset;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+            absolutePathOfAsset = form.getExternalFilesDir(null).getAbsolutePath();
+        else
+            absolutePathOfAsset = Environment.getExternalStorageDirectory().getAbsolutePath();
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R)
+            absolutePathOfAsset += "/AppInventor";
+        return absolutePathOfAsset + "/assets/" + path.substring(2);
+    }
+
+    // Decodes without touching the image cache. Safe to call from a background thread.
+    public Bitmap decodeBitmap(String path) throws IOException {
         if (path.startsWith("//")) {
-            Bitmap bitmap = null;
+            if (form.isRepl())
+                return decodeFileBitmap(getReplAssetPath(path));
+            return decodeSampledBitmap(BitmapDecoder.fromAsset(form.getAssets(), path.substring(2)));
+        }
+        if (path.startsWith("/"))
+            return decodeFileBitmap(path);
+        if (path.startsWith("file://"))
+            return decodeFileBitmap(Uri.parse(path).getPath());
 
-            if (form.isRepl()) {
-                String absolutePathOfAsset;
+        BitmapDrawable drawable = MediaUtil.getBitmapDrawable(form, path);
+        return drawable == null ? null : drawable.getBitmap();
+    }
 
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
-                    absolutePathOfAsset = form.getExternalFilesDir(null).getAbsolutePath();
-                else
-                    absolutePathOfAsset = Environment.getExternalStorageDirectory().getAbsolutePath();
+    // Resolves the path the same way as decodeBitmap, but leaves the decoding to the caller.
+    public BitmapDecoder.Source getImageSource(final String path) {
+        if (path.startsWith("//")) {
+            if (form.isRepl())
+                return BitmapDecoder.fromFile(getReplAssetPath(path));
+            return BitmapDecoder.fromAsset(form.getAssets(), path.substring(2));
+        }
+        if (path.startsWith("/"))
+            return BitmapDecoder.fromFile(path);
+        if (path.startsWith("file://"))
+            return BitmapDecoder.fromFile(Uri.parse(path).getPath());
 
-                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R)
-                    absolutePathOfAsset += "/AppInventor";
-                absolutePathOfAsset += "/assets/" + path.substring(2);
+        return new BitmapDecoder.Source() {
+            @Override
+            public InputStream open() throws IOException {
+                return MediaUtil.openMedia(form, path);
+            }
+        };
+    }
 
-                bitmap = BitmapFactory.decodeFile(absolutePathOfAsset);
-            } else {
-                AssetManager assetManager = form.getAssets();
-                InputStream istr;
-                try {
-                    istr = assetManager.open(path.substring(2));
-                    bitmap = BitmapFactory.decodeStream(istr);
-                    istr.close();
-                } catch (IOException e) {
-                    Error("Error while trying to read the assets: " + e.getMessage(), event);
+    // Large files go through the thumbnail disk cache, so that only the small copy has to be read next time.
+    public Bitmap decodeFileBitmap(String path) throws IOException {
+        final File file = new File(path);
+        if (!thumbnailCache.isEnabled() || file.length() < MIN_THUMBNAIL_SOURCE_SIZE)
+            return decodeSampledBitmap(BitmapDecoder.fromFile(path));
+
+        // A copy made for a smaller display or a lower MaxDecodedImageSize would look blurry, so it is not used.
+        DisplayMetrics metrics = form.getResources().getDisplayMetrics();
+        final int reqWidth = metrics.widthPixels;
+        final int reqHeight = metrics.heightPixels;
+        final long maxDecodedBytes = maxDecodedImageSize * 1024L;
+        File cached = thumbnailCache.lookup(file, reqWidth, reqHeight, maxDecodedBytes);
+        if (cached != null) {
+            Bitmap bitmap = decodeSampledBitmap(BitmapDecoder.fromFile(cached.getPath()));
+            if (bitmap != null) return bitmap;
+        }
+
+        final Bitmap bitmap = decodeSampledBitmap(BitmapDecoder.fromFile(path));
+        if (bitmap != null) {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        thumbnailCache.store(file, reqWidth, reqHeight, maxDecodedBytes, bitmap);
+                    } catch (IOException e) {
+                        // The image is shown anyway, it will just be decoded from the original again next time.
+                    }
                 }
-            }
-            return new BitmapDrawable(form.getResources(), bitmap);
-        } else
-            try {
-                return MediaUtil.getBitmapDrawable(form, path);
-            } catch (IOException e) {
-                Error("Error while trying to read the assets: " + e.getMessage(), event);
-                return null;
-            }
+            });
+        }
+        return bitmap;
+    }
+
+    // A dialog can never show more pixels than the display, so images are sampled down to fit inside it.
+    public Bitmap decodeSampledBitmap(BitmapDecoder.Source source) throws IOException {
+        DisplayMetrics metrics = form.getResources().getDisplayMetrics();
+        return BitmapDecoder.decode(source, metrics.widthPixels, metrics.heightPixels,
+            maxDecodedImageSize * 1024L, preferRGB565);
     }
 
     public Spanned getHtml(String src) {
+        return getHtml(src, html);
+    }
+
+    public Spanned getHtml(String src, boolean asHtml) {
         if (src == null) return null;
-        if (!html) return new SpannedString(src);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
-            return Html.fromHtml(src, Html.FROM_HTML_MODE_COMPACT);
-        return Html.fromHtml(src);
+        if (!asHtml) return new SpannedString(src);
+        return htmlCache.get(src, Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? Html.FROM_HTML_MODE_COMPACT
+            : HtmlCache.LEGACY_MODE, src.contains("<img") ? inlineImages : null);
     }
 
     @SimpleEvent(description = "This event is invoked when an error has occurred with the given block of this extension.")
@@ -498,16 +1874,71 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     }
 
     public int getTheme() {
-        if (classic) return 16974374;
-        if (!lightTheme)
-            return(fullscreen ? 16974122 : 16974545);
-        return (fullscreen ? 16974125 : 16974546);
+        return DialogThemes.select(classic, lightTheme, fullscreen);
     }
 
-    public Typeface getFont(String name) {
+    // block is the name of the block that uses the font, for reporting errors.
+    public Typeface getFont(String name, String block) {
+      if (isFontPath(name)) {
+          try {
+              return getTypefaceFromPath(name);
+          } catch (RuntimeException e) {
+              Error("Error while trying to read the font: " + e.getMessage(), block);
+              return Typeface.DEFAULT;
+          }
+      }
       return fonts.getOrDefault(name, Typeface.DEFAULT);
     }
 
+    public boolean isFontPath(String path) {
+        if (path == null) return false;
+        String lowerCasePath = path.toLowerCase();
+        return lowerCasePath.endsWith(".ttf") || lowerCasePath.endsWith(".otf");
+    }
+
+    // Typefaces hold native memory that is never given back, so each font file is only ever loaded once per process.
+    // Safe to call from a background thread.
+    public Typeface getTypefaceFromPath(String path) {
+        String asset = path.startsWith("//") ? path.substring(2) : path;
+        String key;
+        if (asset.startsWith("/"))
+            key = "file:" + asset;
+        else if (form.isRepl())
+            key = "file:" + getReplAssetPath("//" + asset);
+        else
+            key = "asset:" + asset;
+
+        Typeface typeface = typefaces.get(key);
+        if (typeface == null) {
+            typeface = key.startsWith("asset:") ? Typeface.createFromAsset(form.getAssets(), asset)
+                : Typeface.createFromFile(key.substring(5));
+            Typeface existing = typefaces.putIfAbsent(key, typeface);
+            if (existing != null) typeface = existing;
+        }
+        return typeface;
+    }
+
+    // Covers the title, message and buttons as well as texts in the content, such as the labels of progress rows.
+    public void attachInlineImages(AlertDialog dialog, String block) {
+        Window window = dialog.getWindow();
+        if (window != null) inlineImages.attachAll(window.getDecorView(), block);
+    }
+
+    public void applyDialogFont(AlertDialog dialog, String block) {
+        Typeface typeface = getFont(dialogFont, block);
+        if (alertTitleId == 0)
+            alertTitleId = form.getResources().getIdentifier("alertTitle", "id", "android");
+
+        TextView title = alertTitleId == 0 ? null : (TextView) dialog.findViewById(alertTitleId);
+        if (title != null) title.setTypeface(typeface);
+        TextView message = (TextView) dialog.findViewById(android.R.id.message);
+        if (message != null) message.setTypeface(typeface);
+    }
+
+    public void hideKeyboard(View view) {
+        ((InputMethodManager) form.getSystemService(Context.INPUT_METHOD_SERVICE)).hideSoftInputFromWindow(view.getWindowToken(), 0);
+    }
+
     public int getTypeface(boolean bold, boolean italic) {
         if (bold && italic) return Typeface.BOLD_ITALIC;
         else if (bold && !italic) return Typeface.BOLD;
@@ -515,7 +1946,25 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
         else return Typeface.NORMAL;
     }
 
-    public AlertDialog showAlertDialog(AlertDialog dialog) {
+    // Also called from the workers, for example to store a thumbnail after a decode.
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "DaffyDialog-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    public AlertDialog showAlertDialog(AlertDialog dialog, String type) {
         Window window = dialog.getWindow();
         if (window != null){
             window.addFlags(2);
@@ -523,14 +1972,295 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
             window.setGravity(verticalGravities.get(verticalAlignmentDialog - 1) | horizontalGravities.get(alignHorizontalDialog - 1));
         }
         dialog.show();
+        if (!Font.Default.toUnderlyingValue().equals(dialogFont)) applyDialogFont(dialog, type);
+        if (inlineImages.hasPending()) attachInlineImages(dialog, type);
         return dialog;
     }
 
+    // type is the name of the block that shows the dialog and id the ID given to it.
+    public AlertDialog showAlertDialog(AlertDialog dialog, String type, int id) {
+        return showAlertDialog(dialog, type, id, null);
+    }
+
+    // afterShow runs once the dialog is actually on screen, which can be later when SchedulerEnabled is true.
+    public AlertDialog showAlertDialog(AlertDialog dialog, String type, int id, Runnable afterShow) {
+        if (schedulerEnabled) {
+            Integer priority = dialogPriorities.get(id);
+            scheduler.submit(dialog, type, id, priority == null ? 0 : priority, afterShow);
+        } else {
+            presentDialog(dialog, type, id, afterShow);
+        }
+        return dialog;
+    }
+
+    public void presentDialog(AlertDialog dialog, String type, int id, Runnable afterShow) {
+        long showStart = metrics.start();
+        long showAllocations = metrics.startAllocations();
+        showAlertDialog(dialog, type);
+        if (showStart != 0) {
+            metrics.record(type, DialogMetrics.SHOW, showStart);
+            metrics.recordAllocations(type, DialogMetrics.SHOW, showAllocations);
+            recordShowMetrics(dialog, type, showStart);
+        }
+        if (afterShow != null) afterShow.run();
+
+        PrewarmType dialogType = blockPrewarmTypes.get(type);
+        Long firstShowStart = dialogType == null ? null : firstShowStarts.remove(dialogType);
+        if (firstShowStart != null && shownTypes.add(dialogType))
+            FirstDialogShown(dialogType.toUnderlyingValue(), (int) (SystemClock.uptimeMillis() - firstShowStart),
+                prewarmedTypes.contains(dialogType));
+    }
+
+    public void recordShowMetrics(AlertDialog dialog, final String type, final long showStart) {
+        Window window = dialog.getWindow();
+        if (window != null) {
+            final ViewTreeObserver observer = window.getDecorView().getViewTreeObserver();
+            observer.addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+                boolean drawn = false;
+
+                @Override
+                public void onDraw() {
+                    if (drawn) return;
+                    drawn = true;
+                    metrics.record(type, DialogMetrics.FIRST_FRAME, showStart);
+                    final ViewTreeObserver.OnDrawListener listener = this;
+                    // Listeners cannot be removed while the tree is being drawn.
+                    uiHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (observer.isAlive()) observer.removeOnDrawListener(listener);
+                        }
+                    });
+                }
+            });
+        }
+
+        ResponseTimer timer = responseTimers.get(dialog);
+        if (timer == null) {
+            timer = new ResponseTimer(metrics);
+            responseTimers.put(dialog, timer);
+            DismissListeners.add(dialog, timer);
+        }
+        timer.type = type;
+        timer.showStart = showStart;
+    }
+
+    // Blocks called on another thread hand themselves over to the main thread through these, so that dialogs are only
+    // ever touched on the main thread and the registries need no locking. The block is called again there by name with
+    // the same arguments, the way EventDispatcher calls event handlers.
+    public void dispatch(String block, Object... args) {
+        reportOffThreadCall(block);
+        dispatcher.post(blockCall(block, args));
+    }
+
+    // The ID is the first argument of the block.
+    public void dispatchShow(String block, DialogRegistry.Kind kind, int id, Object... args) {
+        reportOffThreadCall(block);
+        Object[] blockArgs = new Object[args.length + 1];
+        blockArgs[0] = id;
+        System.arraycopy(args, 0, blockArgs, 1, args.length);
+        dispatcher.postShow(kind + ":" + id, blockCall(block, blockArgs));
+    }
+
+    // whenCoalesced runs instead of the block when the dismissal canceled a show that had not run yet, unless the
+    // dialog is still on screen from an earlier show. whenCoalesced may be null.
+    public void dispatchDismiss(String block, final DialogRegistry.Kind kind, final int id,
+            final Runnable whenCoalesced) {
+        reportOffThreadCall(block);
+        final Runnable call = blockCall(block, id);
+        dispatcher.postDismiss(kind + ":" + id, call, new Runnable() {
+            @Override
+            public void run() {
+                DialogRegistry.Entry entry = dialogRegistry.get(kind, id);
+                if (entry != null && entry.state == DialogRegistry.State.SHOWING)
+                    call.run();
+                else if (whenCoalesced != null)
+                    whenCoalesced.run();
+            }
+        });
+    }
+
+    public Runnable blockCall(String block, final Object... args) {
+        final Method method = findBlock(block, args.length);
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    method.invoke(DaffyDialog.this, args);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                } catch (InvocationTargetException e) {
+                    // Rethrown as it is, so a block fails the same way as when it is called on the main thread.
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    if (cause instanceof java.lang.Error) throw (java.lang.Error) cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        };
+    }
+
+    // A getter and its setter share a name, so blocks are found by name and number of arguments.
+    static Method findBlock(String block, int arguments) {
+        String key = block + "/" + arguments;
+        Method method = blockMethods.get(key);
+        if (method != null) return method;
+        for (Method candidate : DaffyDialog.class.getMethods()) {
+            if (candidate.getName().equals(block) && candidate.getParameterTypes().length == arguments) {
+                blockMethods.put(key, candidate);
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("There is no block " + block + " with " + arguments + " arguments.");
+    }
+
+    // For blocks that return a value and therefore cannot be handed over.
+    public void checkThread(String block) {
+        if (!MainThreadDispatcher.isMainThread()) reportOffThreadCall(block);
+    }
+
+    public void reportOffThreadCall(final String block) {
+        if (!strictThreadChecks) return;
+        dispatcher.post(new Runnable() {
+            @Override
+            public void run() {
+                Error(block + " was called from a background thread. It has been run on the main thread instead.", block);
+            }
+        });
+    }
+
+    public void showInputDialog(final AlertDialog dialog, final EditText editText, String type, int id) {
+        // The watcher is kept as the tag of the input, so it goes away together with the dialog. Inputs without
+        // validation get none while TextChanged is off, since nothing would listen to what it reports.
+        InputWatcher watcher = (InputWatcher) editText.getTag();
+        if (watcher == null && (textChangedInterval > 0 || inputValidations.containsKey(id))) {
+            watcher = new InputWatcher();
+            editText.setTag(watcher);
+            editText.addTextChangedListener(watcher);
+            DismissListeners.add(dialog, watcher);
+        }
+        if (watcher == null) {
+            showAlertDialog(dialog, type, id, null);
+            return;
+        }
+        watcher.id = id;
+        final InputWatcher shownWatcher = watcher;
+        showAlertDialog(dialog, type, id, new Runnable() {
+            @Override
+            public void run() {
+                shownWatcher.shown(dialog, editText.getText().toString());
+            }
+        });
+    }
+
+    // Attached once to the input of each text and password input dialog that needs it, pooled ones included. Changes
+    // made while the dialog is not on screen, such as resetting a pooled dialog, are ignored. The dialog is only held
+    // while it is showing.
+    final class InputWatcher implements TextWatcher, DialogInterface.OnDismissListener {
+        final AtomicInteger generation = new AtomicInteger();
+        AlertDialog dialog;
+        int id;
+        String text;
+
+        final Runnable textChanged = new Runnable() {
+            @Override
+            public void run() {
+                TextChanged(id, text);
+            }
+        };
+
+        void shown(AlertDialog dialog, String text) {
+            this.dialog = dialog;
+            this.text = text;
+            validate();
+        }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            if (dialog == null) return;
+            text = s.toString();
+            if (textChangedInterval > 0) {
+                uiHandler.removeCallbacks(textChanged);
+                uiHandler.postDelayed(textChanged, textChangedInterval);
+            }
+            validate();
+        }
+
+        @Override
+        public void onDismiss(DialogInterface dialogInterface) {
+            dialog = null;
+            generation.incrementAndGet();
+            uiHandler.removeCallbacks(textChanged);
+        }
+
+        void validate() {
+            final int validationGeneration = generation.incrementAndGet();
+            final InputValidation validation = inputValidations.get(id);
+            if (validation == null) {
+                setPositiveButtonEnabled(true);
+                return;
+            }
+            final String input = text;
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (validationGeneration != generation.get()) return;
+                    final boolean valid = validation.accepts(input);
+                    uiHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (validationGeneration == generation.get()) setPositiveButtonEnabled(valid);
+                        }
+                    });
+                }
+            });
+        }
+
+        void setPositiveButtonEnabled(boolean enabled) {
+            if (dialog == null) return;
+            Button button = dialog.getButton(DialogInterface.BUTTON_POSITIVE);
+            if (button != null) button.setEnabled(enabled);
+        }
+    }
+
+    // Buttons dismiss their dialog, so the time until dismissal is the time the user took to respond.
+    static final class ResponseTimer implements DialogInterface.OnDismissListener {
+        final DialogMetrics metrics;
+        String type;
+        long showStart;
+
+        ResponseTimer(DialogMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void onDismiss(DialogInterface dialog) {
+            metrics.record(type, DialogMetrics.RESPONSE, showStart);
+            showStart = 0;
+        }
+    }
+
+    public void scheduleMetricsReport() {
+        uiHandler.removeCallbacks(metricsReporter);
+        if (metrics.enabled && metricsReportInterval > 0)
+            uiHandler.postDelayed(metricsReporter, metricsReportInterval);
+    }
+
     // The following blocks are property blocks.
 
     @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_FLOAT, defaultValue = "0.5")
     @SimpleProperty (description = "Sets the amount of dim behind the dialog. Use 0.0 for no dim and 1.0 for full dim.")
     public void DimAmount(float input) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("DimAmount", input);
+            return;
+        }
         dimAmount = input;
     }
 
@@ -542,6 +2272,10 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "false")
     @SimpleProperty (description = "Specifies whether the dialog should be displayed in fullscreen mode.")
     public void Fullscreen(boolean input) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("Fullscreen", input);
+            return;
+        }
         fullscreen = input;
     }
 
@@ -551,13 +2285,40 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
         return fullscreen;
     }
 
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_STRING, defaultValue = "DEFAULT")
+    @SimpleProperty(description = "Sets the font of the title and message of all dialogs. Use DEFAULT, MONOSPACE, SANS SERIF," +
+            " SERIF or the path of a .ttf or .otf font asset.")
+    public void DialogFont(String font) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("DialogFont", font);
+            return;
+        }
+        dialogFont = font;
+    }
+
+    @SimpleProperty(description = "Sets the font of the title and message of all dialogs. Use DEFAULT, MONOSPACE, SANS SERIF," +
+            " SERIF or the path of a .ttf or .otf font asset.", category = PropertyCategory.APPEARANCE)
+    public String DialogFont() {
+        return dialogFont;
+    }
+
     @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "false")
-    @SimpleProperty (description = "Specifies whether HTML tags should be enabled for the titles, messages and buttons of all dialogs.")
+    @SimpleProperty (description = "Specifies whether HTML tags should be enabled for the titles, messages and buttons of all dialogs. " +
+        "Images in img tags are loaded in the background, using the same paths as the icons.")
     public void HTMLFormat(boolean input) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("HTMLFormat", input);
+            return;
+        }
+        if (html != input) {
+            htmlCache.clear();
+            inlineImages.clear();
+        }
         html = input;
     }
 
-    @SimpleProperty(description = "Specifies whether HTML tags should be enabled for the titles, messages and buttons of all dialogs.",
+    @SimpleProperty(description = "Specifies whether HTML tags should be enabled for the titles, messages and buttons of all dialogs. " +
+        "Images in img tags are loaded in the background, using the same paths as the icons.",
          category = PropertyCategory.APPEARANCE)
     public boolean HTMLFormat() {
         return html;
@@ -567,6 +2328,10 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     @SimpleProperty (description = "Specifies whether the theme of the dialog should be in light theme. If Classic is " +
             "set to TRUE, the dialog will be displayed in Classic mode and this property will be ignored")
     public void LightTheme(boolean lightTheme) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("LightTheme", lightTheme);
+            return;
+        }
         this.lightTheme = lightTheme;
     }
     
@@ -581,6 +2346,10 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     @SimpleProperty(description = "Specifies whether the dialogs should be dismissed when the user clicks anywhere " +
             "on the dinputMethodManagered background.")
     public void DismissWhenBackgroundClicked(boolean dismissWhenBackgroundClicked) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("DismissWhenBackgroundClicked", dismissWhenBackgroundClicked);
+            return;
+        }
         this.dismissWhenBackgroundClicked = dismissWhenBackgroundClicked;
     }
 
@@ -595,6 +2364,10 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     @SimpleProperty(description = "Specifies the vertical position of the dialog when it is shown. Options are Top, Center and Bottom.",
         category = PropertyCategory.APPEARANCE)
     public void GravityVertical(@Options(VerticalAlignment.class) int verticalAlignmentDialog) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("GravityVertical", verticalAlignmentDialog);
+            return;
+        }
         this.verticalAlignmentDialog = verticalAlignmentDialog;
     }
 
@@ -609,6 +2382,10 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     @SimpleProperty(description = "Specifies the horizontal position of the dialog when it is shown. Options are Left, " +
             "Center and Right.", category = PropertyCategory.APPEARANCE)
     public void GravityHorizontal(@Options(HorizontalAlignment.class) int alignment) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("GravityHorizontal", alignment);
+            return;
+        }
         alignHorizontalDialog = alignment;
     }
 
@@ -617,4 +2394,413 @@ public class DaffyDialog extends AndroidNonvisibleComponent {
     public int GravityHorizontal() {
         return alignHorizontalDialog;
     }
-}
\ No newline at end of file
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "false")
+    @SimpleProperty(description = "Specifies whether the extension should record how long each phase of showing a dialog" +
+            " takes. Use GetDialogMetrics to read the results. Recording has no noticeable cost while this is false.")
+    public void MetricsEnabled(boolean input) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("MetricsEnabled", input);
+            return;
+        }
+        metrics.setEnabled(input);
+        scheduleMetricsReport();
+    }
+
+    @SimpleProperty(description = "Specifies whether the extension should record how long each phase of showing a dialog" +
+            " takes. Use GetDialogMetrics to read the results. Recording has no noticeable cost while this is false.",
+            category = PropertyCategory.BEHAVIOR)
+    public boolean MetricsEnabled() {
+        return metrics.enabled;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "0")
+    @SimpleProperty(description = "Sets the interval, in milliseconds, at which the MetricsReport event is fired while" +
+            " MetricsEnabled is true. Use 0 to never fire it.")
+    public void MetricsReportInterval(int interval) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("MetricsReportInterval", interval);
+            return;
+        }
+        metricsReportInterval = Math.max(0, interval);
+        scheduleMetricsReport();
+    }
+
+    @SimpleProperty(description = "Sets the interval, in milliseconds, at which the MetricsReport event is fired while" +
+            " MetricsEnabled is true. Use 0 to never fire it.", category = PropertyCategory.BEHAVIOR)
+    public int MetricsReportInterval() {
+        return metricsReportInterval;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "4096")
+    @SimpleProperty(description = "Sets the maximum amount of memory, in kilobytes, used to keep decoded icons and images" +
+            " so that they do not have to be decoded again. Use 0 to disable the image cache.")
+    public void ImageCacheSize(int kilobytes) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ImageCacheSize", kilobytes);
+            return;
+        }
+        imageCacheSize = Math.max(0, kilobytes);
+        imageCache.setMaxKilobytes(imageCacheSize);
+    }
+
+    @SimpleProperty(description = "Sets the maximum amount of memory, in kilobytes, used to keep decoded icons and images" +
+            " so that they do not have to be decoded again. Use 0 to disable the image cache.", category = PropertyCategory.BEHAVIOR)
+    public int ImageCacheSize() {
+        return imageCacheSize;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "2500")
+    @SimpleProperty(description = "Sets how long, in milliseconds, a banner stays on screen.")
+    public void BannerDuration(int duration) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("BannerDuration", duration);
+            return;
+        }
+        bannerDuration = Math.max(0, duration);
+    }
+
+    @SimpleProperty(description = "Sets how long, in milliseconds, a banner stays on screen.",
+            category = PropertyCategory.BEHAVIOR)
+    public int BannerDuration() {
+        return bannerDuration;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "8")
+    @SimpleProperty(description = "Sets how many messages can wait to be shown in the banner. When the queue is full, the" +
+            " oldest waiting message is dropped.")
+    public void BannerQueueSize(int size) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("BannerQueueSize", size);
+            return;
+        }
+        bannerQueueSize = Math.max(0, size);
+        banners.setMaxQueued(bannerQueueSize);
+    }
+
+    @SimpleProperty(description = "Sets how many messages can wait to be shown in the banner. When the queue is full, the" +
+            " oldest waiting message is dropped.", category = PropertyCategory.BEHAVIOR)
+    public int BannerQueueSize() {
+        return bannerQueueSize;
+    }
+
+    @SimpleProperty(description = "Returns the number of banner messages that were not queued because the same message was" +
+            " already showing or waiting.", category = PropertyCategory.BEHAVIOR)
+    public int CoalescedBannerCount() {
+        return banners.coalesced();
+    }
+
+    @SimpleProperty(description = "Returns the number of banner messages that were dropped because the queue was full.",
+            category = PropertyCategory.BEHAVIOR)
+    public int DroppedBannerCount() {
+        return banners.dropped();
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "false")
+    @SimpleProperty(description = "Specifies whether dialogs should wait in a queue instead of being shown at once, so that" +
+            " no more than MaxVisibleDialogs are on screen together and at least MinShowInterval milliseconds pass between" +
+            " two of them. A dialog requested again for the same block and ID while it is waiting replaces the waiting one.")
+    public void SchedulerEnabled(boolean input) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("SchedulerEnabled", input);
+            return;
+        }
+        schedulerEnabled = input;
+        if (!input) scheduler.flush();
+    }
+
+    @SimpleProperty(description = "Specifies whether dialogs should wait in a queue instead of being shown at once, so that" +
+            " no more than MaxVisibleDialogs are on screen together and at least MinShowInterval milliseconds pass between" +
+            " two of them. A dialog requested again for the same block and ID while it is waiting replaces the waiting one.",
+            category = PropertyCategory.BEHAVIOR)
+    public boolean SchedulerEnabled() {
+        return schedulerEnabled;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "1")
+    @SimpleProperty(description = "Sets how many dialogs can be on screen together while SchedulerEnabled is true.")
+    public void MaxVisibleDialogs(int count) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("MaxVisibleDialogs", count);
+            return;
+        }
+        maxVisibleDialogs = Math.max(1, count);
+        scheduler.configure(maxVisibleDialogs, minShowInterval, maxQueuedDialogs);
+    }
+
+    @SimpleProperty(description = "Sets how many dialogs can be on screen together while SchedulerEnabled is true.",
+            category = PropertyCategory.BEHAVIOR)
+    public int MaxVisibleDialogs() {
+        return maxVisibleDialogs;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "0")
+    @SimpleProperty(description = "Sets the shortest time, in milliseconds, between showing two dialogs while" +
+            " SchedulerEnabled is true.")
+    public void MinShowInterval(int interval) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("MinShowInterval", interval);
+            return;
+        }
+        minShowInterval = Math.max(0, interval);
+        scheduler.configure(maxVisibleDialogs, minShowInterval, maxQueuedDialogs);
+    }
+
+    @SimpleProperty(description = "Sets the shortest time, in milliseconds, between showing two dialogs while" +
+            " SchedulerEnabled is true.", category = PropertyCategory.BEHAVIOR)
+    public int MinShowInterval() {
+        return minShowInterval;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "16")
+    @SimpleProperty(description = "Sets how many dialogs can wait in the queue while SchedulerEnabled is true. When the" +
+            " queue is full, the dialog with the lowest priority is dropped.")
+    public void MaxQueuedDialogs(int count) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("MaxQueuedDialogs", count);
+            return;
+        }
+        maxQueuedDialogs = Math.max(0, count);
+        scheduler.configure(maxVisibleDialogs, minShowInterval, maxQueuedDialogs);
+    }
+
+    @SimpleProperty(description = "Sets how many dialogs can wait in the queue while SchedulerEnabled is true. When the" +
+            " queue is full, the dialog with the lowest priority is dropped.", category = PropertyCategory.BEHAVIOR)
+    public int MaxQueuedDialogs() {
+        return maxQueuedDialogs;
+    }
+
+    @SimpleProperty(description = "Returns the number of dialogs that are waiting in the queue.",
+            category = PropertyCategory.BEHAVIOR)
+    public int QueuedDialogCount() {
+        return scheduler.queued();
+    }
+
+    @SimpleProperty(description = "Returns the number of dialogs that replaced a waiting dialog for the same block and ID.",
+            category = PropertyCategory.BEHAVIOR)
+    public int MergedDialogCount() {
+        return scheduler.merged();
+    }
+
+    @SimpleProperty(description = "Returns the number of dialogs that were never shown because the queue was full.",
+            category = PropertyCategory.BEHAVIOR)
+    public int DroppedDialogCount() {
+        return scheduler.dropped();
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "false")
+    @SimpleProperty(description = "Blocks of this extension can be called from any thread, and are run on the main thread." +
+            " If StrictThreadChecks is true, every call made on another thread is also reported through the Error event.")
+    public void StrictThreadChecks(boolean input) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("StrictThreadChecks", input);
+            return;
+        }
+        strictThreadChecks = input;
+    }
+
+    @SimpleProperty(description = "Blocks of this extension can be called from any thread, and are run on the main thread." +
+            " If StrictThreadChecks is true, every call made on another thread is also reported through the Error event.",
+            category = PropertyCategory.BEHAVIOR)
+    public boolean StrictThreadChecks() {
+        return strictThreadChecks;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "false")
+    @SimpleProperty(description = "Specifies whether CreateCustomDialog should only remember the component and ID, and" +
+            " build the dialog the first time ShowCustomDialog is called.")
+    public void LazyCustomDialogs(boolean input) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("LazyCustomDialogs", input);
+            return;
+        }
+        lazyCustomDialogs = input;
+    }
+
+    @SimpleProperty(description = "Specifies whether CreateCustomDialog should only remember the component and ID, and" +
+            " build the dialog the first time ShowCustomDialog is called.", category = PropertyCategory.BEHAVIOR)
+    public boolean LazyCustomDialogs() {
+        return lazyCustomDialogs;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "0")
+    @SimpleProperty(description = "Sets how long, in milliseconds, the user has to stop typing in a text or password input" +
+            " dialog before the TextChanged event is fired. Use 0 to never fire it.")
+    public void TextChangedInterval(int interval) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("TextChangedInterval", interval);
+            return;
+        }
+        textChangedInterval = Math.max(0, interval);
+    }
+
+    @SimpleProperty(description = "Sets how long, in milliseconds, the user has to stop typing in a text or password input" +
+            " dialog before the TextChanged event is fired. Use 0 to never fire it.", category = PropertyCategory.BEHAVIOR)
+    public int TextChangedInterval() {
+        return textChangedInterval;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "150")
+    @SimpleProperty(description = "Sets how long, in milliseconds, an autocomplete input dialog waits after the last" +
+            " keystroke before looking up suggestions.")
+    public void AutocompleteDelay(int delay) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("AutocompleteDelay", delay);
+            return;
+        }
+        autocompleteDelay = Math.max(0, delay);
+    }
+
+    @SimpleProperty(description = "Sets how long, in milliseconds, an autocomplete input dialog waits after the last" +
+            " keystroke before looking up suggestions.", category = PropertyCategory.BEHAVIOR)
+    public int AutocompleteDelay() {
+        return autocompleteDelay;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "0")
+    @SimpleProperty(description = "Sets how many dismissed text input, password input and number picker dialogs are kept" +
+            " so that they can be reset and shown again instead of being rebuilt. A dialog is reused for the same" +
+            " block and ID. Use 0 to disable pooling.")
+    public void DialogPoolSize(int size) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("DialogPoolSize", size);
+            return;
+        }
+        dialogPoolSize = Math.max(0, size);
+        dialogPool.setMaxSize(dialogPoolSize);
+    }
+
+    @SimpleProperty(description = "Sets how many dismissed text input, password input and number picker dialogs are kept" +
+            " so that they can be reset and shown again instead of being rebuilt. A dialog is reused for the same" +
+            " block and ID. Use 0 to disable pooling.", category = PropertyCategory.BEHAVIOR)
+    public int DialogPoolSize() {
+        return dialogPoolSize;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "false")
+    @SimpleProperty(description = "Specifies whether image dialogs should decode their image in the background." +
+            " The dialog is shown right away with a loading indicator and the ImageDialogLoaded event is fired once the image is ready.")
+    public void AsyncImageDecoding(boolean input) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("AsyncImageDecoding", input);
+            return;
+        }
+        asyncImageDecoding = input;
+    }
+
+    @SimpleProperty(description = "Specifies whether image dialogs should decode their image in the background." +
+            " The dialog is shown right away with a loading indicator and the ImageDialogLoaded event is fired once the image is ready.",
+            category = PropertyCategory.BEHAVIOR)
+    public boolean AsyncImageDecoding() {
+        return asyncImageDecoding;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "false")
+    @SimpleProperty(description = "Specifies whether opaque images such as JPEGs should be decoded with 16 bits per pixel," +
+            " which halves their memory usage at the cost of some color precision.")
+    public void PreferRGB565(boolean input) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("PreferRGB565", input);
+            return;
+        }
+        if (preferRGB565 != input) imageCache.evictAll();
+        preferRGB565 = input;
+    }
+
+    @SimpleProperty(description = "Specifies whether opaque images such as JPEGs should be decoded with 16 bits per pixel," +
+            " which halves their memory usage at the cost of some color precision.", category = PropertyCategory.BEHAVIOR)
+    public boolean PreferRGB565() {
+        return preferRGB565;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "0")
+    @SimpleProperty(description = "Sets the maximum amount of storage, in kilobytes, used in the app cache directory to" +
+            " keep smaller copies of large image files, so that they load faster the next time the app is started." +
+            " The least recently used copies are deleted first. Use 0 to disable the thumbnail cache.")
+    public void ThumbnailCacheSize(int kilobytes) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("ThumbnailCacheSize", kilobytes);
+            return;
+        }
+        thumbnailCacheSize = Math.max(0, kilobytes);
+        thumbnailCache.setMaxBytes(thumbnailCacheSize * 1024L);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                thumbnailCache.trim();
+            }
+        });
+    }
+
+    @SimpleProperty(description = "Sets the maximum amount of storage, in kilobytes, used in the app cache directory to" +
+            " keep smaller copies of large image files, so that they load faster the next time the app is started." +
+            " The least recently used copies are deleted first. Use 0 to disable the thumbnail cache.",
+            category = PropertyCategory.BEHAVIOR)
+    public int ThumbnailCacheSize() {
+        return thumbnailCacheSize;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "0")
+    @SimpleProperty(description = "Sets the maximum size, in kilobytes, of a single decoded icon or image. Larger images are" +
+            " sampled down until they fit. Use 0 for no limit other than the size of the display.")
+    public void MaxDecodedImageSize(int kilobytes) {
+        if (!MainThreadDispatcher.isMainThread()) {
+            dispatch("MaxDecodedImageSize", kilobytes);
+            return;
+        }
+        kilobytes = Math.max(0, kilobytes);
+        if (maxDecodedImageSize != kilobytes) imageCache.evictAll();
+        maxDecodedImageSize = kilobytes;
+    }
+
+    @SimpleProperty(description = "Sets the maximum size, in kilobytes, of a single decoded icon or image. Larger images are" +
+            " sampled down until they fit. Use 0 for no limit other than the size of the display.", category = PropertyCategory.BEHAVIOR)
+    public int MaxDecodedImageSize() {
+        return maxDecodedImageSize;
+    }
+
+    @SimpleProperty(description = "Returns the number of custom, linear progress and multi-task progress dialogs that are" +
+            " currently kept by this extension. Progress dialogs are released when they are dismissed, custom dialogs when" +
+            " ReleaseDialog is called.",
+            category = PropertyCategory.BEHAVIOR)
+    public int ActiveDialogCount() {
+        return dialogRegistry.size();
+    }
+
+    @SimpleProperty(description = "Returns the number of times UpdateProgress has been called.", category = PropertyCategory.BEHAVIOR)
+    public int ProgressUpdatesReceived() {
+        return progressUpdates.received();
+    }
+
+    @SimpleProperty(description = "Returns the number of progress values that have actually been applied to a progress bar." +
+            " This is lower than ProgressUpdatesReceived when several updates arrived within the same display frame.",
+            category = PropertyCategory.BEHAVIOR)
+    public int ProgressUpdatesApplied() {
+        return progressUpdates.applied();
+    }
+
+    @SimpleProperty(description = "Returns the number of block calls that were made on a background thread and handed" +
+            " over to the main thread.", category = PropertyCategory.BEHAVIOR)
+    public int DispatchedCalls() {
+        return dispatcher.dispatched();
+    }
+
+    @SimpleProperty(description = "Returns the number of times a dismissal made on a background thread canceled a show of" +
+            " the same dialog that had not run yet, so that the dialog was never shown at all.",
+            category = PropertyCategory.BEHAVIOR)
+    public int CoalescedCalls() {
+        return dispatcher.coalesced();
+    }
+
+    @SimpleProperty(description = "Returns the number of times an icon or image was taken from the image cache.",
+            category = PropertyCategory.BEHAVIOR)
+    public int ImageCacheHits() {
+        return imageCache.hitCount();
+    }
+
+    @SimpleProperty(description = "Returns the number of times an icon or image was not found in the image cache and had to be decoded.",
+            category = PropertyCategory.BEHAVIOR)
+    public int ImageCacheMisses() {
+        return imageCache.missCount();
+    }
+}
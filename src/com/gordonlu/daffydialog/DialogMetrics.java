@@ -0,0 +1,147 @@
+package com.gordonlu.daffydialog;
+
+import android.os.Debug;
+
+import com.google.appinventor.components.runtime.util.YailDictionary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per dialog type and phase latency histograms. Call sites take their timestamp with start(), which
+ * returns 0 while the metrics are disabled, and record() ignores a start of 0, so a disabled
+ * instance costs one field read per phase. The build and show phases also count the bytes the main
+ * thread allocates, using the runtime's allocation counter, which only runs while metrics are enabled.
+ */
+final class DialogMetrics {
+
+    static final String BUILD = "build";
+    static final String SHOW = "show";
+    static final String DECODE = "decode";
+    static final String HTML = "html";
+    static final String FIRST_FRAME = "firstFrame";
+    static final String RESPONSE = "response";
+
+    volatile boolean enabled = false;
+
+    private final Map<String, Map<String, Histogram>> histograms = new LinkedHashMap<>();
+
+    // Counting allocations slows the runtime down a little, so the counter only runs while metrics are enabled.
+    @SuppressWarnings("deprecation")
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled)
+            Debug.startAllocCounting();
+        else
+            Debug.stopAllocCounting();
+    }
+
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void record(String type, String phase, long startNanos) {
+        if (startNanos == 0) return;
+        long elapsedNanos = System.nanoTime() - startNanos;
+        synchronized (this) {
+            histogram(type, phase).record(elapsedNanos / 1000);
+        }
+    }
+
+    // Like start(), but returns the bytes allocated so far on the calling thread, or -1 while disabled.
+    @SuppressWarnings("deprecation")
+    long startAllocations() {
+        return enabled ? Debug.getThreadAllocSize() : -1;
+    }
+
+    // Must be called on the same thread as startAllocations.
+    @SuppressWarnings("deprecation")
+    void recordAllocations(String type, String phase, long startBytes) {
+        if (startBytes < 0) return;
+        long bytes = Math.max(0, Debug.getThreadAllocSize() - startBytes);
+        synchronized (this) {
+            histogram(type, phase).recordAllocation(bytes);
+        }
+    }
+
+    private Histogram histogram(String type, String phase) {
+        Map<String, Histogram> phases = histograms.get(type);
+        if (phases == null) {
+            phases = new LinkedHashMap<>();
+            histograms.put(type, phases);
+        }
+        Histogram histogram = phases.get(phase);
+        if (histogram == null) {
+            histogram = new Histogram();
+            phases.put(phase, histogram);
+        }
+        return histogram;
+    }
+
+    synchronized void reset() {
+        histograms.clear();
+    }
+
+    // {type: {phase: {count, mean, p50, p90, p99, max, allocatedKB}}} with all times in milliseconds.
+    synchronized YailDictionary toDictionary() {
+        YailDictionary types = new YailDictionary();
+        for (Map.Entry<String, Map<String, Histogram>> type : histograms.entrySet()) {
+            YailDictionary phases = new YailDictionary();
+            for (Map.Entry<String, Histogram> phase : type.getValue().entrySet())
+                phases.put(phase.getKey(), phase.getValue().toDictionary());
+            types.put(type.getKey(), phases);
+        }
+        return types;
+    }
+
+    /**
+     * Log-linear histogram of microsecond values with four buckets per power of two, which keeps
+     * percentiles within about 19% of the true value.
+     */
+    static final class Histogram {
+
+        private static final int BUCKETS = 112;
+
+        private final int[] counts = new int[BUCKETS];
+        private int count;
+        private long sumMicros;
+        private long maxMicros;
+        private int allocationCount;
+        private long allocatedBytes;
+
+        void record(long micros) {
+            int bucket = micros <= 1 ? 0 : Math.min(BUCKETS - 1, (int) Math.ceil(4 * Math.log(micros) / Math.log(2)));
+            counts[bucket]++;
+            count++;
+            sumMicros += micros;
+            maxMicros = Math.max(maxMicros, micros);
+        }
+
+        void recordAllocation(long bytes) {
+            allocationCount++;
+            allocatedBytes += bytes;
+        }
+
+        double percentileMillis(double percentile) {
+            long target = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= target) return Math.min(Math.pow(2, i / 4.0), maxMicros) / 1000.0;
+            }
+            return maxMicros / 1000.0;
+        }
+
+        YailDictionary toDictionary() {
+            YailDictionary dictionary = new YailDictionary();
+            dictionary.put("count", count);
+            dictionary.put("mean", count == 0 ? 0 : sumMicros / 1000.0 / count);
+            dictionary.put("p50", percentileMillis(0.5));
+            dictionary.put("p90", percentileMillis(0.9));
+            dictionary.put("p99", percentileMillis(0.99));
+            dictionary.put("max", maxMicros / 1000.0);
+            if (allocationCount > 0) dictionary.put("allocatedKB", allocatedBytes / 1024.0 / allocationCount);
+            return dictionary;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.gordonlu.daffydialog;
+
+import android.app.AlertDialog;
+import android.view.View;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps dismissed input dialogs together with their input view so they can be reset and shown again
+ * instead of being rebuilt. Least recently used dialogs are dropped once the pool is full.
+ */
+final class DialogPool {
+
+    static final class Entry {
+        final AlertDialog dialog;
+        final View input;
+
+        Entry(AlertDialog dialog, View input) {
+            this.dialog = dialog;
+            this.input = input;
+        }
+    }
+
+    private int maxSize;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    DialogPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // Returns null when nothing is pooled for the key or the pooled dialog is still on screen.
+    Entry acquire(String key) {
+        Entry entry = entries.get(key);
+        return entry == null || entry.dialog.isShowing() ? null : entry;
+    }
+
+    void offer(String key, AlertDialog dialog, View input) {
+        if (maxSize > 0 && !entries.containsKey(key))
+            entries.put(key, new Entry(dialog, input));
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
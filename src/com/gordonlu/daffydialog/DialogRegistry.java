@@ -0,0 +1,119 @@
+package com.gordonlu.daffydialog;
+
+import android.app.AlertDialog;
+import android.content.DialogInterface;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Tracks the dialogs that are kept by ID, together with their content view and state. Progress dialogs
+ * are released as soon as they are dismissed or canceled; custom dialogs stay registered until they are
+ * released explicitly, because they can be shown again. Only used from the main thread.
+ */
+final class DialogRegistry {
+
+    enum Kind { CUSTOM, PROGRESS, MULTI_PROGRESS }
+
+    enum State { CREATED, SHOWING, DISMISSED }
+
+    interface ReleaseListener {
+        void onReleased(Entry entry);
+    }
+
+    static final class Entry {
+        final Kind kind;
+        final int id;
+        AlertDialog dialog;
+        final View content;
+        State state = State.CREATED;
+
+        // Where the content view of a custom dialog came from, so that it can be put back.
+        ViewGroup originalParent;
+        int originalIndex;
+        ViewGroup.LayoutParams originalLayoutParams;
+        int originalVisibility;
+
+        Entry(Kind kind, int id, AlertDialog dialog, View content) {
+            this.kind = kind;
+            this.id = id;
+            this.dialog = dialog;
+            this.content = content;
+        }
+    }
+
+    private final HashMap<Long, Entry> entries = new HashMap<>();
+    private final ReleaseListener releaseListener;
+
+    DialogRegistry(ReleaseListener releaseListener) {
+        this.releaseListener = releaseListener;
+    }
+
+    private static long key(Kind kind, int id) {
+        return ((long) kind.ordinal() << 32) | (id & 0xffffffffL);
+    }
+
+    Entry register(Kind kind, int id, AlertDialog dialog, View content) {
+        Entry previous = entries.get(key(kind, id));
+        if (previous != null) release(previous);
+
+        Entry entry = new Entry(kind, id, null, content);
+        entries.put(key(kind, id), entry);
+        if (dialog != null) setDialog(entry, dialog);
+        return entry;
+    }
+
+    void setDialog(final Entry entry, AlertDialog dialog) {
+        entry.dialog = dialog;
+        DismissListeners.add(dialog, new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialogInterface) {
+                entry.state = State.DISMISSED;
+                if (entry.kind != Kind.CUSTOM) release(entry);
+            }
+        });
+    }
+
+    Entry get(Kind kind, int id) {
+        return entries.get(key(kind, id));
+    }
+
+    boolean contains(Kind kind, int id) {
+        return entries.containsKey(key(kind, id));
+    }
+
+    void markShowing(Entry entry) {
+        entry.state = State.SHOWING;
+    }
+
+    // Ignores entries that have already been replaced by a newer registration with the same kind and ID.
+    void release(Entry entry) {
+        if (entries.get(key(entry.kind, entry.id)) != entry) return;
+        entries.remove(key(entry.kind, entry.id));
+        if (entry.dialog != null && entry.dialog.isShowing()) entry.dialog.dismiss();
+        releaseListener.onReleased(entry);
+    }
+
+    int release(int id) {
+        int released = 0;
+        for (Kind kind : Kind.values()) {
+            Entry entry = entries.get(key(kind, id));
+            if (entry != null) {
+                release(entry);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    void releaseAll() {
+        for (Entry entry : new ArrayList<>(entries.values()))
+            release(entry);
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
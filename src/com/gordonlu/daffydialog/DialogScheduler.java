@@ -0,0 +1,196 @@
+package com.gordonlu.daffydialog;
+
+import android.app.AlertDialog;
+import android.content.DialogInterface;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Queues dialogs instead of showing them at once, so that only a limited number are on screen together and they
+ * appear no faster than a given rate. Higher priorities are shown first, and dialogs of equal priority in the order
+ * they were requested. A request for a type and ID that is already waiting replaces the waiting dialog instead of
+ * being queued again. Only used from the main thread.
+ */
+final class DialogScheduler {
+
+    interface Presenter {
+        void present(AlertDialog dialog, String type, int id, Runnable afterShow);
+    }
+
+    private static final class Request implements Comparable<Request> {
+        final String key;
+        final int priority;
+        final long sequence;
+        AlertDialog dialog;
+        String type;
+        int id;
+        Runnable afterShow;
+
+        Request(String key, int priority, long sequence) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (priority != other.priority) return priority > other.priority ? -1 : 1;
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    private final PriorityQueue<Request> queue = new PriorityQueue<>();
+    private final HashMap<String, Request> queuedByKey = new HashMap<>();
+    private final Handler handler;
+    private final Presenter presenter;
+
+    private int maxConcurrent = 1;
+    private int minInterval = 0;
+    private int maxQueued = 16;
+
+    private int showing;
+    private long lastShowTime;
+    private long sequence;
+    private int merged;
+    private int dropped;
+
+    private final Runnable pump = new Runnable() {
+        @Override
+        public void run() {
+            pump();
+        }
+    };
+
+    private final DialogInterface.OnDismissListener dismissListener = new DialogInterface.OnDismissListener() {
+        @Override
+        public void onDismiss(DialogInterface dialog) {
+            showing = Math.max(0, showing - 1);
+            pump();
+        }
+    };
+
+    DialogScheduler(Handler handler, Presenter presenter) {
+        this.handler = handler;
+        this.presenter = presenter;
+    }
+
+    void configure(int maxConcurrent, int minInterval, int maxQueued) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.minInterval = Math.max(0, minInterval);
+        this.maxQueued = Math.max(0, maxQueued);
+        pump();
+    }
+
+    void submit(AlertDialog dialog, String type, int id, int priority, Runnable afterShow) {
+        String key = type + ":" + id;
+        Request request = queuedByKey.get(key);
+        if (request != null && request.priority >= priority) {
+            merged++;
+            discard(request, dialog);
+        } else {
+            if (request != null) {
+                queue.remove(request);
+                merged++;
+                discard(request, dialog);
+            }
+            request = new Request(key, priority, sequence++);
+            queue.add(request);
+            queuedByKey.put(key, request);
+        }
+        request.dialog = dialog;
+        request.type = type;
+        request.id = id;
+        request.afterShow = afterShow;
+        pump();
+
+        // Only what could not be shown counts against the limit, so a full queue drops the lowest priority request,
+        // which may be the new one.
+        while (queue.size() > maxQueued) {
+            Request lowest = lowest();
+            queue.remove(lowest);
+            queuedByKey.remove(lowest.key);
+            dropped++;
+            discard(lowest, null);
+        }
+    }
+
+    // Removes the dialog if it is still waiting, for when it is dismissed or released before its turn.
+    boolean cancel(AlertDialog dialog) {
+        for (Request request : new ArrayList<>(queue)) {
+            if (request.dialog == dialog) {
+                queue.remove(request);
+                queuedByKey.remove(request.key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Shows every waiting dialog at once, for when the scheduler is turned off.
+    void flush() {
+        handler.removeCallbacks(pump);
+        Request request;
+        while ((request = queue.poll()) != null) {
+            queuedByKey.remove(request.key);
+            presenter.present(request.dialog, request.type, request.id, request.afterShow);
+        }
+    }
+
+    void clear() {
+        queue.clear();
+        queuedByKey.clear();
+        handler.removeCallbacks(pump);
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    int merged() {
+        return merged;
+    }
+
+    int dropped() {
+        return dropped;
+    }
+
+    // Whatever waits for the dismissal of a dialog that will not get its turn is told, unless the dialog is still in
+    // use by the request that replaced it or is on screen from an earlier show.
+    private static void discard(Request request, AlertDialog replacement) {
+        if (request.dialog != replacement && !request.dialog.isShowing())
+            DismissListeners.notifyDismissed(request.dialog);
+    }
+
+    private Request lowest() {
+        Request lowest = null;
+        for (Request request : queue)
+            if (lowest == null || request.compareTo(lowest) > 0) lowest = request;
+        return lowest;
+    }
+
+    private void pump() {
+        handler.removeCallbacks(pump);
+        while (!queue.isEmpty() && showing < maxConcurrent) {
+            long wait = lastShowTime + minInterval - SystemClock.uptimeMillis();
+            if (lastShowTime != 0 && wait > 0) {
+                handler.postDelayed(pump, wait);
+                return;
+            }
+            Request request = queue.poll();
+            queuedByKey.remove(request.key);
+            lastShowTime = SystemClock.uptimeMillis();
+            // Showing a dialog that is already on screen does not add a window, so it is not counted.
+            boolean alreadyShowing = request.dialog.isShowing();
+            presenter.present(request.dialog, request.type, request.id, request.afterShow);
+            if (!alreadyShowing && request.dialog.isShowing()) {
+                showing++;
+                DismissListeners.remove(request.dialog, dismissListener);
+                DismissListeners.add(request.dialog, dismissListener);
+            }
+        }
+    }
+}
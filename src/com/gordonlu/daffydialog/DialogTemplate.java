@@ -0,0 +1,98 @@
+package com.gordonlu.daffydialog;
+
+import android.graphics.Bitmap;
+import android.text.Spanned;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of a dialog that are prepared once by DefineDialogTemplate: theme, icon and any text
+ * without placeholders. Texts with {name} placeholders are split up front so that showing only
+ * has to join the pieces. Whether the texts are HTML is also fixed when the template is defined,
+ * so that prepared and filled texts are always parsed and escaped the same way.
+ */
+final class DialogTemplate {
+
+    final String type;
+    final int theme;
+    final boolean html;
+    final Bitmap icon;
+    final boolean cancelable;
+    final Text title;
+    final Text message;
+    final Text button1;
+    final Text button2;
+    final Text cancelButton;
+
+    DialogTemplate(String type, int theme, boolean html, Bitmap icon, boolean cancelable, Text title, Text message,
+            Text button1, Text button2, Text cancelButton) {
+        this.type = type;
+        this.theme = theme;
+        this.html = html;
+        this.icon = icon;
+        this.cancelable = cancelable;
+        this.title = title;
+        this.message = message;
+        this.button1 = button1;
+        this.button2 = button2;
+        this.cancelButton = cancelButton;
+    }
+
+    static final class Text {
+
+        // Literal text at even indices, placeholder names at odd indices.
+        private final List<String> parts;
+        // The parsed text, set when there is nothing to substitute.
+        Spanned prepared;
+
+        private Text(List<String> parts) {
+            this.parts = parts;
+        }
+
+        static Text parse(String src) {
+            if (src == null) return null;
+            List<String> parts = new ArrayList<>();
+            int literalStart = 0;
+            int open = src.indexOf('{');
+            while (open >= 0) {
+                int close = src.indexOf('}', open + 1);
+                if (close < 0) break;
+                String name = src.substring(open + 1, close);
+                if (name.isEmpty() || name.indexOf('{') >= 0) {
+                    open = src.indexOf('{', open + 1);
+                    continue;
+                }
+                parts.add(src.substring(literalStart, open));
+                parts.add(name);
+                literalStart = close + 1;
+                open = src.indexOf('{', literalStart);
+            }
+            parts.add(src.substring(literalStart));
+            return new Text(parts);
+        }
+
+        boolean hasPlaceholders() {
+            return parts.size() > 1;
+        }
+
+        String fill(Map<?, ?> values, boolean escapeHtml) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < parts.size(); i++) {
+                String part = parts.get(i);
+                if (i % 2 == 0) {
+                    builder.append(part);
+                } else {
+                    Object value = values == null ? null : values.get(part);
+                    if (value == null)
+                        builder.append('{').append(part).append('}');
+                    else
+                        builder.append(escapeHtml ? TextUtils.htmlEncode(value.toString()) : value.toString());
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.gordonlu.daffydialog;
+
+/**
+ * Picks the platform dialog theme for the LightTheme, Fullscreen and classic settings. It does not need a Form,
+ * so the choice can be benchmarked on the desktop JVM together with the rest of the show path.
+ */
+final class DialogThemes {
+
+    private DialogThemes() {
+    }
+
+    static int select(boolean classic, boolean light, boolean fullscreen) {
+        if (classic) return 16974374;
+        if (!light)
+            return(fullscreen ? 16974122 : 16974545);
+        return (fullscreen ? 16974125 : 16974546);
+    }
+}
@@ -0,0 +1,60 @@
+package com.gordonlu.daffydialog;
+
+import android.app.Dialog;
+import android.content.DialogInterface;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.WeakHashMap;
+
+/**
+ * Lets several parts of the extension listen for the dismissal of the same dialog,
+ * since a Dialog only holds a single OnDismissListener. Only used from the main thread.
+ *
+ * The dialog itself holds the composite listener as its dismiss listener. The listeners usually reference the
+ * dialog and the component, so the static lookup table only keeps weak references to it; otherwise the dialog,
+ * and through the component the whole Activity, could never be collected.
+ */
+final class DismissListeners implements DialogInterface.OnDismissListener {
+
+    private static final WeakHashMap<Dialog, WeakReference<DismissListeners>> attached = new WeakHashMap<>();
+
+    private final List<DialogInterface.OnDismissListener> listeners = new ArrayList<>();
+
+    private DismissListeners() {
+    }
+
+    private static DismissListeners get(Dialog dialog) {
+        WeakReference<DismissListeners> reference = attached.get(dialog);
+        return reference == null ? null : reference.get();
+    }
+
+    static void add(Dialog dialog, DialogInterface.OnDismissListener listener) {
+        DismissListeners dismissListeners = get(dialog);
+        if (dismissListeners == null) {
+            dismissListeners = new DismissListeners();
+            attached.put(dialog, new WeakReference<>(dismissListeners));
+            dialog.setOnDismissListener(dismissListeners);
+        }
+        dismissListeners.listeners.add(listener);
+    }
+
+    static void remove(Dialog dialog, DialogInterface.OnDismissListener listener) {
+        DismissListeners dismissListeners = get(dialog);
+        if (dismissListeners != null) dismissListeners.listeners.remove(listener);
+    }
+
+    // Dialog.dismiss does nothing for a dialog that was never shown, so one that is thrown away before its turn tells
+    // its listeners through this instead.
+    static void notifyDismissed(Dialog dialog) {
+        DismissListeners dismissListeners = get(dialog);
+        if (dismissListeners != null) dismissListeners.onDismiss(dialog);
+    }
+
+    @Override
+    public void onDismiss(DialogInterface dialog) {
+        for (DialogInterface.OnDismissListener listener : new ArrayList<>(listeners))
+            listener.onDismiss(dialog);
+    }
+}
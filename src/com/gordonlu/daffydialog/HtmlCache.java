@@ -0,0 +1,48 @@
+package com.gordonlu.daffydialog;
+
+import android.text.Html;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.util.LruCache;
+
+/**
+ * LRU cache of parsed HTML, keyed by HTML mode and source string.
+ */
+final class HtmlCache {
+
+    // Html.fromHtml(String) without flags, for devices older than Android N.
+    static final int LEGACY_MODE = -1;
+
+    private final LruCache<String, Spanned> cache;
+
+    HtmlCache(int maxEntries) {
+        cache = new LruCache<>(maxEntries);
+    }
+
+    Spanned get(String src, int mode) {
+        return get(src, mode, null);
+    }
+
+    // The image getter is only asked for the images of sources that are not cached yet.
+    Spanned get(String src, int mode, Html.ImageGetter imageGetter) {
+        String key = mode + ":" + src;
+        Spanned spanned = cache.get(key);
+        if (spanned == null) {
+            // Stored as an immutable copy so that the same result can be handed to any number of dialogs.
+            spanned = new SpannedString(mode == LEGACY_MODE ? Html.fromHtml(src, imageGetter, null)
+                : Html.fromHtml(src, mode, imageGetter, null));
+            cache.put(key, spanned);
+        }
+        return spanned;
+    }
+
+    // Drops every parsed text whose source contains the given text, such as the path of an image that failed to load.
+    void evictContaining(String text) {
+        for (String key : cache.snapshot().keySet())
+            if (key.contains(text)) cache.remove(key);
+    }
+
+    void clear() {
+        cache.evictAll();
+    }
+}
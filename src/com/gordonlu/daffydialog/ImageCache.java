@@ -0,0 +1,43 @@
+package com.gordonlu.daffydialog;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+/**
+ * Memory-bounded LRU cache of decoded bitmaps, keyed by resolved path and sized by byte count.
+ * A maximum size of zero disables the cache.
+ */
+final class ImageCache extends LruCache<String, Bitmap> {
+
+    private volatile boolean enabled;
+
+    ImageCache(int maxKilobytes) {
+        super(Math.max(1, maxKilobytes));
+        enabled = maxKilobytes > 0;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setMaxKilobytes(int maxKilobytes) {
+        enabled = maxKilobytes > 0;
+        if (enabled)
+            resize(maxKilobytes);
+        else
+            evictAll();
+    }
+
+    Bitmap lookup(String key) {
+        return enabled ? get(key) : null;
+    }
+
+    void store(String key, Bitmap bitmap) {
+        if (enabled && bitmap != null) put(key, bitmap);
+    }
+
+    @Override
+    protected int sizeOf(String key, Bitmap bitmap) {
+        return Math.max(1, bitmap.getByteCount() / 1024);
+    }
+}
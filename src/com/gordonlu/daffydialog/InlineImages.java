@@ -0,0 +1,244 @@
+package com.gordonlu.daffydialog;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.text.Html;
+import android.text.Spanned;
+import android.text.style.ImageSpan;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Supplies the images of img tags in HTML texts without reading them while the text is parsed. A placeholder of a
+ * fixed size is put in the text at first, and both the size and the image are read on a background executor, since a
+ * source may be a URL. The text views showing the placeholder are laid out again once the size is known and redrawn
+ * once the image is there. Placeholders are shared by every text that uses the same image. An image that cannot be
+ * read is reported against the block whose text showed it, and the texts using it are evicted so the next show tries
+ * again. Only used from the main thread, except for the reading itself.
+ */
+final class InlineImages implements Html.ImageGetter {
+
+    interface Loader {
+        BitmapDecoder.Source open(String path);
+
+        Bitmap load(String path) throws IOException;
+
+        // block is the name of the block whose text showed the image.
+        void onError(String path, Exception e, String block);
+
+        // The parsed texts that use the image should be dropped, so that they are parsed and loaded again.
+        void onFailed(String path);
+    }
+
+    static final class Placeholder extends Drawable {
+        private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        private final List<WeakReference<TextView>> views = new ArrayList<>();
+        private final String source;
+        private Bitmap bitmap;
+        private Exception error;
+        private boolean reported;
+        // The block of the last text that was shown with this placeholder.
+        private String block;
+
+        Placeholder(String source, int width, int height) {
+            this.source = source;
+            setBounds(0, 0, width, height);
+        }
+
+        boolean isLoaded() {
+            return bitmap != null;
+        }
+
+        void addView(TextView view) {
+            for (WeakReference<TextView> reference : views)
+                if (reference.get() == view) return;
+            views.add(new WeakReference<>(view));
+        }
+
+        void resize(int width, int height) {
+            setBounds(0, 0, width, height);
+            // The layout of a text keeps the size its images had, so the text is set again to lay it out anew.
+            for (WeakReference<TextView> reference : views) {
+                TextView view = reference.get();
+                if (view != null) view.setText(view.getText());
+            }
+        }
+
+        void setBitmap(Bitmap bitmap) {
+            this.bitmap = bitmap;
+            // The bounds stay the same, so redrawing is enough.
+            for (WeakReference<TextView> reference : views) {
+                TextView view = reference.get();
+                if (view != null) view.invalidate();
+            }
+            views.clear();
+        }
+
+        void fail(Exception e) {
+            error = e;
+            // Nothing is drawn, so the space kept for the image is given back.
+            resize(0, 0);
+            views.clear();
+        }
+
+        @Override
+        public void draw(Canvas canvas) {
+            if (bitmap != null) canvas.drawBitmap(bitmap, null, getBounds(), paint);
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+            paint.setAlpha(alpha);
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter colorFilter) {
+            paint.setColorFilter(colorFilter);
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+    }
+
+    private final LruCache<String, Placeholder> placeholders = new LruCache<>(64);
+    // Placeholders whose size or image is still being read. Reads started before the last clear are not counted.
+    private int pending;
+    private int generation;
+    private final Loader loader;
+    private final Executor executor;
+    private final Handler handler;
+    private final int maxWidth;
+
+    InlineImages(Loader loader, Executor executor, Handler handler, int maxWidth) {
+        this.loader = loader;
+        this.executor = executor;
+        this.handler = handler;
+        this.maxWidth = maxWidth;
+    }
+
+    @Override
+    public Drawable getDrawable(final String source) {
+        Placeholder cached = placeholders.get(source);
+        if (cached != null) return cached;
+
+        // Until the size is read, a square of a quarter of the width keeps room for the image.
+        int size = Math.max(1, maxWidth / 4);
+        final Placeholder placeholder = new Placeholder(source, size, size);
+        placeholders.put(source, placeholder);
+        pending++;
+        final int started = generation;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    BitmapFactory.Options bounds = BitmapDecoder.readBounds(loader.open(source));
+                    if (bounds.outWidth <= 0 || bounds.outHeight <= 0)
+                        throw new IOException("The image cannot be decoded.");
+
+                    // Wide images are scaled down to fit the dialog, keeping their aspect ratio.
+                    final int width = Math.min(bounds.outWidth, maxWidth);
+                    final int height = Math.max(1, (int) ((long) bounds.outHeight * width / bounds.outWidth));
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            placeholder.resize(width, height);
+                        }
+                    });
+
+                    final Bitmap bitmap = loader.load(source);
+                    if (bitmap == null) throw new IOException("The image cannot be decoded.");
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            finished(started);
+                            placeholder.setBitmap(bitmap);
+                        }
+                    });
+                } catch (final IOException | RuntimeException e) {
+                    // Opening a URL on a thread that forbids it, among others, fails with a RuntimeException.
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            finished(started);
+                            placeholders.remove(source);
+                            placeholder.fail(e);
+                            if (placeholder.block != null) {
+                                report(placeholder, placeholder.block);
+                            } else {
+                                // Not shown yet; the failure is reported if the text is shown after all.
+                                loader.onFailed(source);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+        return placeholder;
+    }
+
+    private void finished(int started) {
+        if (started == generation) pending--;
+    }
+
+    boolean hasPending() {
+        return pending > 0;
+    }
+
+    // Makes every text view under the given view redraw once the images it shows have been loaded. block is the name
+    // of the block that showed them, for reporting images that cannot be read.
+    void attachAll(View view, String block) {
+        if (view instanceof TextView) {
+            attach((TextView) view, block);
+        } else if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++)
+                attachAll(group.getChildAt(i), block);
+        }
+    }
+
+    void attach(TextView view, String block) {
+        if (view == null || !(view.getText() instanceof Spanned)) return;
+        Spanned text = (Spanned) view.getText();
+        for (ImageSpan span : text.getSpans(0, text.length(), ImageSpan.class)) {
+            Drawable drawable = span.getDrawable();
+            if (!(drawable instanceof Placeholder)) continue;
+            Placeholder placeholder = (Placeholder) drawable;
+            if (placeholder.error != null) {
+                report(placeholder, block);
+            } else if (!placeholder.isLoaded()) {
+                placeholder.block = block;
+                placeholder.addView(view);
+            }
+        }
+    }
+
+    private void report(Placeholder placeholder, String block) {
+        if (placeholder.reported) return;
+        placeholder.reported = true;
+        loader.onFailed(placeholder.source);
+        loader.onError(placeholder.source, placeholder.error, block);
+    }
+
+    void clear() {
+        placeholders.evictAll();
+        pending = 0;
+        generation++;
+    }
+}
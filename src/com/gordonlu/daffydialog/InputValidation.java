@@ -0,0 +1,28 @@
+package com.gordonlu.daffydialog;
+
+import java.util.regex.Pattern;
+
+/**
+ * Validation rule of an input dialog. The pattern is compiled once when the rule is set, and the rule is only read
+ * afterwards, so it can be evaluated on any thread.
+ */
+final class InputValidation {
+
+    private final Pattern pattern;
+    private final int minLength;
+    private final int maxLength;
+
+    // An empty regex or a maximum length of 0 means no constraint.
+    InputValidation(String regex, int minLength, int maxLength) {
+        this.pattern = regex.isEmpty() ? null : Pattern.compile(regex);
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+    }
+
+    boolean accepts(String text) {
+        int length = text.length();
+        if (length < minLength) return false;
+        if (maxLength > 0 && length > maxLength) return false;
+        return pattern == null || pattern.matcher(text).matches();
+    }
+}
@@ -0,0 +1,175 @@
+package com.gordonlu.daffydialog;
+
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Checkable;
+import android.widget.TextView;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recycling adapter for the list chooser dialog. Only the rows on screen are inflated, and the search query is
+ * matched on a background thread. Every query gets a new generation number, so a search that has been overtaken by
+ * a newer one stops early and its result is never shown. Selection is tracked by item index rather than list
+ * position, so it survives filtering. Only used from the main thread, except for the search itself.
+ */
+final class ListChooserAdapter extends BaseAdapter {
+
+    // How many items a search goes through before checking whether it has been overtaken.
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final String[] items;
+    private final boolean multiSelect;
+    private final boolean[] checked;
+    private final LayoutInflater inflater;
+    private final Typeface typeface;
+    private final Executor executor;
+    private final Handler handler;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // Lower-cased copies of the items, built by the first search.
+    private volatile String[] normalized;
+
+    // Indices of the items that match the current query, or null when every item is shown.
+    private int[] visible;
+    private String query = "";
+    private int checkedCount;
+
+    ListChooserAdapter(LayoutInflater inflater, String[] items, boolean multiSelect, Typeface typeface,
+            Executor executor, Handler handler) {
+        this.inflater = inflater;
+        this.items = items;
+        this.multiSelect = multiSelect;
+        this.checked = new boolean[multiSelect ? items.length : 0];
+        this.typeface = typeface;
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    @Override
+    public int getCount() {
+        return visible == null ? items.length : visible.length;
+    }
+
+    @Override
+    public String getItem(int position) {
+        return items[getItemIndex(position)];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItemIndex(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    boolean isMultiSelect() {
+        return multiSelect;
+    }
+
+    int getItemIndex(int position) {
+        return visible == null ? position : visible[position];
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView row = (TextView) convertView;
+        if (row == null) {
+            row = (TextView) inflater.inflate(multiSelect ? android.R.layout.simple_list_item_multiple_choice
+                : android.R.layout.simple_list_item_1, parent, false);
+            if (typeface != null) row.setTypeface(typeface);
+        }
+        int index = getItemIndex(position);
+        row.setText(items[index]);
+        if (multiSelect) ((Checkable) row).setChecked(checked[index]);
+        return row;
+    }
+
+    void toggle(int position, View row) {
+        int index = getItemIndex(position);
+        checked[index] = !checked[index];
+        checkedCount += checked[index] ? 1 : -1;
+        if (row instanceof Checkable) ((Checkable) row).setChecked(checked[index]);
+    }
+
+    int[] getCheckedIndices() {
+        int[] indices = new int[checkedCount];
+        int count = 0;
+        for (int i = 0; i < checked.length && count < checkedCount; i++)
+            if (checked[i]) indices[count++] = i;
+        return indices;
+    }
+
+    String getItemAt(int index) {
+        return items[index];
+    }
+
+    void filter(String text) {
+        final String newQuery = text.trim().toLowerCase(Locale.ROOT);
+        final int filterGeneration = generation.incrementAndGet();
+        if (newQuery.isEmpty()) {
+            apply("", null);
+            return;
+        }
+        // A query that extends the current one can only match items that already match, so only those are searched.
+        final int[] candidates = !query.isEmpty() && newQuery.contains(query) ? visible : null;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int[] matches = search(newQuery, candidates, filterGeneration);
+                if (matches == null) return;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (filterGeneration == generation.get()) apply(newQuery, matches);
+                    }
+                });
+            }
+        });
+    }
+
+    // Drops any search that is still running, for when the dialog goes away.
+    void cancelFilter() {
+        generation.incrementAndGet();
+    }
+
+    private void apply(String newQuery, int[] matches) {
+        query = newQuery;
+        visible = matches;
+        notifyDataSetChanged();
+    }
+
+    private int[] search(String needle, int[] candidates, int filterGeneration) {
+        String[] haystack = normalized;
+        if (haystack == null) {
+            haystack = new String[items.length];
+            // Not cut short when overtaken, since every later search needs it too.
+            for (int i = 0; i < items.length; i++)
+                haystack[i] = items[i].toLowerCase(Locale.ROOT);
+            normalized = haystack;
+        }
+
+        int total = candidates == null ? haystack.length : candidates.length;
+        int[] matches = new int[Math.min(total, 256)];
+        int count = 0;
+        for (int i = 0; i < total; i++) {
+            if (i % CHECK_INTERVAL == 0 && filterGeneration != generation.get()) return null;
+            int index = candidates == null ? i : candidates[i];
+            if (haystack[index].contains(needle)) {
+                if (count == matches.length) matches = Arrays.copyOf(matches, Math.min(total, count * 2));
+                matches[count++] = index;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+}
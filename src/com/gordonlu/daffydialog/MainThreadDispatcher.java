@@ -0,0 +1,100 @@
+package com.gordonlu.daffydialog;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands calls made on other threads over to the main thread, in the order they were made. Calls wait in a lock-free
+ * queue that is drained by a single message on the main looper. A dismissal that arrives while the show for the same
+ * key is still waiting cancels that show instead of being queued behind it.
+ */
+final class MainThreadDispatcher {
+
+    private static final class Call {
+        final Runnable runnable;
+        final String showKey;
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        Call(Runnable runnable, String showKey) {
+            this.runnable = runnable;
+            this.showKey = showKey;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Call> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, Call> pendingShows = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicInteger dispatched = new AtomicInteger();
+    private final AtomicInteger coalesced = new AtomicInteger();
+    private final Handler handler;
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            // Cleared before draining so that a call arriving meanwhile schedules another drain.
+            drainScheduled.set(false);
+            Call call;
+            while ((call = queue.poll()) != null) {
+                if (call.showKey != null) pendingShows.remove(call.showKey, call);
+                // A show can be claimed by a dismissal at the same time, so whoever claims it first decides.
+                if (call.claimed.compareAndSet(false, true)) call.runnable.run();
+            }
+        }
+    };
+
+    MainThreadDispatcher(Handler handler) {
+        this.handler = handler;
+    }
+
+    static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    void post(Runnable runnable) {
+        enqueue(new Call(runnable, null));
+    }
+
+    void postShow(String key, Runnable runnable) {
+        Call call = new Call(runnable, key);
+        pendingShows.put(key, call);
+        enqueue(call);
+    }
+
+    // Runs whenCoalesced instead of the dismissal if the show it would undo has not run yet. The dialog can still be on
+    // screen from an earlier show, so whenCoalesced has to check that and dismiss it.
+    void postDismiss(String key, Runnable runnable, Runnable whenCoalesced) {
+        Call show = pendingShows.remove(key);
+        if (show != null && show.claimed.compareAndSet(false, true)) {
+            coalesced.incrementAndGet();
+            post(whenCoalesced);
+            return;
+        }
+        post(runnable);
+    }
+
+    void clear() {
+        queue.clear();
+        pendingShows.clear();
+        handler.removeCallbacks(drain);
+        drainScheduled.set(false);
+    }
+
+    int dispatched() {
+        return dispatched.get();
+    }
+
+    int coalesced() {
+        return coalesced.get();
+    }
+
+    private void enqueue(Call call) {
+        dispatched.incrementAndGet();
+        queue.offer(call);
+        if (drainScheduled.compareAndSet(false, true)) handler.post(drain);
+    }
+}
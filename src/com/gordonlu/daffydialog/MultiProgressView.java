@@ -0,0 +1,161 @@
+package com.gordonlu.daffydialog;
+
+import android.content.Context;
+import android.graphics.BlendMode;
+import android.graphics.BlendModeColorFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.Spanned;
+import android.view.Choreographer;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Content of a multi-task progress dialog: one labelled progress bar per row and a summary line with the overall
+ * progress, throughput and estimated time left. Updates can be posted from any thread; all updates that arrive
+ * within a display frame are applied together in one pass on the next frame.
+ */
+final class MultiProgressView extends LinearLayout implements Choreographer.FrameCallback {
+
+    // Weight of the newest sample in the moving average of the throughput.
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final ProgressBar[] bars;
+    private final TextView summary;
+    private final int maxValue;
+    private final Handler handler;
+
+    // Latest value posted per row, or -1 when the row has no pending update. Guarded by this.
+    private final int[] pending;
+    private boolean frameScheduled;
+    private boolean released;
+
+    // Only touched on the main thread.
+    private final int[] values;
+    private long total;
+    private long lastSampleTotal;
+    private long lastSampleTime;
+    private double rate;
+
+    private final Runnable scheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(MultiProgressView.this);
+        }
+    };
+
+    MultiProgressView(Context context, Spanned[] labels, int progressColor, int maxValue) {
+        super(context);
+        setOrientation(VERTICAL);
+        this.maxValue = Math.max(1, maxValue);
+        this.handler = new Handler(Looper.getMainLooper());
+
+        LinearLayout rows = new LinearLayout(context);
+        rows.setOrientation(VERTICAL);
+        rows.setPadding(20, 10, 20, 10);
+        bars = new ProgressBar[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            TextView label = new TextView(context);
+            label.setText(labels[i]);
+            label.setSingleLine(true);
+            rows.addView(label);
+
+            ProgressBar bar = new ProgressBar(context, null, android.R.attr.progressBarStyleHorizontal);
+            bar.getProgressDrawable().setColorFilter(new BlendModeColorFilter(progressColor, BlendMode.SRC_IN));
+            bar.setMax(this.maxValue);
+            rows.addView(bar, new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            bars[i] = bar;
+        }
+
+        // The summary goes first so that a long list of rows cannot push it out of the dialog.
+        summary = new TextView(context);
+        summary.setSingleLine(true);
+        summary.setPadding(20, 10, 20, 10);
+        addView(summary, new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        ScrollView scrollView = new ScrollView(context);
+        scrollView.addView(rows);
+        addView(scrollView, new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        pending = new int[labels.length];
+        Arrays.fill(pending, -1);
+        values = new int[labels.length];
+        lastSampleTime = SystemClock.uptimeMillis();
+        updateSummary();
+    }
+
+    int rowCount() {
+        return bars.length;
+    }
+
+    // Rows are numbered from 0. Values are clamped to the range of the bars.
+    synchronized void post(int[] rows, int[] newValues) {
+        if (released) return;
+        for (int i = 0; i < rows.length; i++)
+            pending[rows[i]] = Math.max(0, Math.min(maxValue, newValues[i]));
+        if (!frameScheduled) {
+            frameScheduled = true;
+            if (Looper.myLooper() == Looper.getMainLooper())
+                scheduleFrame.run();
+            else
+                handler.post(scheduleFrame);
+        }
+    }
+
+    synchronized void release() {
+        released = true;
+        Arrays.fill(pending, -1);
+        handler.removeCallbacks(scheduleFrame);
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        int[] batch;
+        synchronized (this) {
+            frameScheduled = false;
+            if (released) return;
+            batch = pending.clone();
+            Arrays.fill(pending, -1);
+        }
+
+        for (int row = 0; row < batch.length; row++) {
+            int value = batch[row];
+            if (value < 0 || value == values[row]) continue;
+            total += value - values[row];
+            values[row] = value;
+            bars[row].setProgress(value);
+        }
+        sample();
+        updateSummary();
+    }
+
+    private void sample() {
+        long now = SystemClock.uptimeMillis();
+        long elapsed = now - lastSampleTime;
+        if (elapsed <= 0) return;
+        double sampleRate = (total - lastSampleTotal) * 1000.0 / elapsed;
+        rate = rate == 0 ? sampleRate : RATE_SMOOTHING * sampleRate + (1 - RATE_SMOOTHING) * rate;
+        lastSampleTotal = total;
+        lastSampleTime = now;
+    }
+
+    private void updateSummary() {
+        long capacity = (long) maxValue * bars.length;
+        int percent = capacity == 0 ? 100 : (int) (total * 100 / capacity);
+        if (rate <= 0 || total >= capacity) {
+            summary.setText(String.format(Locale.getDefault(), "%d%%", percent));
+            return;
+        }
+        long secondsLeft = (long) Math.ceil((capacity - total) / rate);
+        summary.setText(String.format(Locale.getDefault(), "%d%%, %.1f/s, %d:%02d left", percent, rate,
+            secondsLeft / 60, secondsLeft % 60));
+    }
+}
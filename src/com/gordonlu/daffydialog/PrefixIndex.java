@@ -0,0 +1,77 @@
+package com.gordonlu.daffydialog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Immutable index of a vocabulary for autocomplete. The entries are sorted once by their lower-cased form, so the
+ * entries starting with a prefix form one run that is found by binary search. Safe to share between threads.
+ */
+final class PrefixIndex {
+
+    private final String[] keys;
+    private final String[] values;
+
+    private PrefixIndex(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    static PrefixIndex build(String[] entries) {
+        final String[][] pairs = new String[entries.length][];
+        for (int i = 0; i < entries.length; i++)
+            pairs[i] = new String[] { entries[i].toLowerCase(Locale.ROOT), entries[i] };
+        Arrays.sort(pairs, new Comparator<String[]>() {
+            @Override
+            public int compare(String[] a, String[] b) {
+                return a[0].compareTo(b[0]);
+            }
+        });
+
+        String[] keys = new String[pairs.length];
+        String[] values = new String[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            keys[i] = pairs[i][0];
+            values[i] = pairs[i][1];
+        }
+        return new PrefixIndex(keys, values);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    List<String> suggest(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        if (key.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        List<String> suggestions = new ArrayList<>(Math.min(limit, 16));
+        // Entries that only differ in case are shown once, as the first of them.
+        Set<String> seen = new HashSet<>();
+        for (int i = lowerBound(key); i < keys.length && keys[i].startsWith(key); i++) {
+            if (!seen.add(keys[i])) continue;
+            suggestions.add(values[i]);
+            if (suggestions.size() == limit) break;
+        }
+        return suggestions;
+    }
+
+    // Returns the position of the first key that is not less than the given key.
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
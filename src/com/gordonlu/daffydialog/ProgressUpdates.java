@@ -0,0 +1,76 @@
+package com.gordonlu.daffydialog;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects progress updates from any thread and applies only the latest value per ID, once per display frame.
+ */
+final class ProgressUpdates implements Choreographer.FrameCallback {
+
+    interface Target {
+        void applyProgress(int id, int progress);
+    }
+
+    private final ConcurrentHashMap<Integer, Integer> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger applied = new AtomicInteger();
+
+    private final Handler handler;
+    private final Target target;
+
+    // Choreographer instances are per thread, so frames are always requested from the main thread.
+    private final Runnable scheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(ProgressUpdates.this);
+        }
+    };
+
+    ProgressUpdates(Handler handler, Target target) {
+        this.handler = handler;
+        this.target = target;
+    }
+
+    void post(int id, int progress) {
+        received.incrementAndGet();
+        pending.put(id, progress);
+        if (frameScheduled.compareAndSet(false, true)) {
+            if (Looper.myLooper() == Looper.getMainLooper())
+                scheduleFrame.run();
+            else
+                handler.post(scheduleFrame);
+        }
+    }
+
+    void discard(int id) {
+        pending.remove(id);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        // Cleared before draining so that an update arriving meanwhile schedules the next frame.
+        frameScheduled.set(false);
+        for (Integer id : pending.keySet()) {
+            Integer progress = pending.remove(id);
+            if (progress != null) {
+                applied.incrementAndGet();
+                target.applyProgress(id, progress);
+            }
+        }
+    }
+
+    int received() {
+        return received.get();
+    }
+
+    int applied() {
+        return applied.get();
+    }
+}
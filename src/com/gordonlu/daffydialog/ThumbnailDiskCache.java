@@ -0,0 +1,142 @@
+package com.gordonlu.daffydialog;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Keeps downscaled, re-encoded copies of large image files in the app cache directory, so that they do not have to be
+ * decoded from the original again after the app restarts. An entry is named after the path, size and modification
+ * time of the original and the size it was decoded for, so a changed file or a larger target simply misses. The
+ * least recently used entries are deleted once the total size goes over the limit. Safe to use from several threads.
+ */
+final class ThumbnailDiskCache {
+
+    private static final int QUALITY = 85;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    // A temporary file older than this was left behind by a write that never finished, such as when the app was killed.
+    private static final long STALE_TEMPORARY_MILLIS = 60 * 1000;
+
+    private final File directory;
+    private volatile long maxBytes;
+
+    ThumbnailDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    // Call trim afterwards, off the main thread, to apply a lower limit to the entries already stored.
+    void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // Returns the copy of the original that was decoded for the same target size and byte limit, or null if there is
+    // none.
+    File lookup(File original, int reqWidth, int reqHeight, long maxDecodedBytes) {
+        File entry = entryFor(original, reqWidth, reqHeight, maxDecodedBytes);
+        if (!entry.isFile()) return null;
+        // The modification time of an entry records when it was last used.
+        entry.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    void store(File original, int reqWidth, int reqHeight, long maxDecodedBytes, Bitmap bitmap) throws IOException {
+        if (!isEnabled() || (!directory.isDirectory() && !directory.mkdirs())) return;
+
+        File entry = entryFor(original, reqWidth, reqHeight, maxDecodedBytes);
+        // Written under a unique name first, so that a half-written entry is never read and two threads storing the
+        // same entry do not write to the same file.
+        File temporary = File.createTempFile(entry.getName(), TEMPORARY_SUFFIX, directory);
+        OutputStream stream = new FileOutputStream(temporary);
+        try {
+            // Opaque images are stored as JPEG, which decodes fastest, and images with transparency as WebP.
+            bitmap.compress(bitmap.hasAlpha() ? webpFormat() : Bitmap.CompressFormat.JPEG, QUALITY, stream);
+        } finally {
+            stream.close();
+        }
+        synchronized (this) {
+            if (!temporary.renameTo(entry)) {
+                temporary.delete();
+                return;
+            }
+        }
+        trim();
+    }
+
+    synchronized void clear() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files)
+            if (!isBeingWritten(file)) file.delete();
+    }
+
+    synchronized void trim() {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return !isBeingWritten(file);
+            }
+        });
+        if (files == null) return;
+
+        long total = 0;
+        for (File file : files)
+            total += file.length();
+        if (total <= maxBytes) return;
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : (difference == 0 ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            if (total <= maxBytes) break;
+            long length = file.length();
+            if (file.delete()) total -= length;
+        }
+    }
+
+    private static boolean isBeingWritten(File file) {
+        return file.getName().endsWith(TEMPORARY_SUFFIX)
+            && System.currentTimeMillis() - file.lastModified() < STALE_TEMPORARY_MILLIS;
+    }
+
+    private File entryFor(File original, int reqWidth, int reqHeight, long maxDecodedBytes) {
+        return new File(directory, hash(original.getAbsolutePath() + ":" + original.length() + ":" +
+            original.lastModified() + ":" + reqWidth + "x" + reqHeight + ":" + maxDecodedBytes));
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                name.append(String.format("%02x", b & 0xff));
+            return name.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R)
+            return Bitmap.CompressFormat.WEBP_LOSSY;
+        return Bitmap.CompressFormat.WEBP;
+    }
+}
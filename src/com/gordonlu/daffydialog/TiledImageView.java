@@ -0,0 +1,327 @@
+package com.gordonlu.daffydialog;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.util.LruCache;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.concurrent.Executor;
+
+/**
+ * Pan-and-zoom view for images too large to decode whole. A preview no larger than the view is always drawn, and on
+ * top of it the tiles that are visible at the current zoom level, decoded with a BitmapRegionDecoder on a background
+ * executor at the coarsest sample size that still looks sharp. Decoded tiles are kept in a cache bounded by bytes, so
+ * memory use depends on the size of the view rather than the size of the image.
+ */
+final class TiledImageView extends View {
+
+    interface Listener {
+        // Called once the image is open and the view is attached to a window, so it can actually be seen.
+        void onLoaded();
+
+        void onError(IOException e);
+    }
+
+    // Edge length of a tile in decoded pixels, whatever the sample size.
+    private static final int TILE_SIZE = 256;
+
+    // How far the image can be zoomed in beyond one image pixel per screen pixel.
+    private static final float MAX_ZOOM = 4;
+
+    private final Executor executor;
+    private final Handler handler;
+    private final Listener listener;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Matrix previewMatrix = new Matrix();
+    private final Rect tileRect = new Rect();
+    private final RectF drawRect = new RectF();
+
+    private final LruCache<Long, Bitmap> tiles;
+    private final HashSet<Long> pendingTiles = new HashSet<>();
+
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+
+    // Fields read by tile decodes on the executor are volatile.
+    private volatile BitmapRegionDecoder decoder;
+    private Bitmap preview;
+    private int imageWidth;
+    private int imageHeight;
+    private volatile boolean released;
+    private boolean loadedReported;
+
+    // Screen position = image position * scale + translation.
+    private volatile float scale;
+    private float minScale;
+    private volatile float translateX;
+    private volatile float translateY;
+
+    TiledImageView(Context context, Executor executor, Handler handler, int tileCacheKilobytes, Listener listener) {
+        super(context);
+        this.executor = executor;
+        this.handler = handler;
+        this.listener = listener;
+        tiles = new LruCache<Long, Bitmap>(Math.max(1, tileCacheKilobytes)) {
+            @Override
+            protected int sizeOf(Long key, Bitmap bitmap) {
+                return Math.max(1, bitmap.getByteCount() / 1024);
+            }
+        };
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                translateX -= distanceX;
+                translateY -= distanceY;
+                clampTranslation();
+                invalidate();
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                zoomBy(scale < minScale * 1.5f ? 2.5f : minScale / scale, e.getX(), e.getY());
+                return true;
+            }
+        });
+    }
+
+    // Opens the image on the executor. The source is read once for the region decoder and once for the preview.
+    void open(final BitmapDecoder.Source source, final int previewWidth, final int previewHeight) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    InputStream stream = source.open();
+                    final BitmapRegionDecoder regionDecoder;
+                    try {
+                        regionDecoder = BitmapRegionDecoder.newInstance(stream, false);
+                    } finally {
+                        stream.close();
+                    }
+                    if (regionDecoder == null) throw new IOException("The image cannot be decoded.");
+
+                    BitmapFactory.Options options = new BitmapFactory.Options();
+                    options.inSampleSize = BitmapDecoder.computeSampleSize(regionDecoder.getWidth(),
+                        regionDecoder.getHeight(), previewWidth, previewHeight, 0, 4);
+                    final Bitmap previewBitmap = regionDecoder.decodeRegion(
+                        new Rect(0, 0, regionDecoder.getWidth(), regionDecoder.getHeight()), options);
+
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (released) {
+                                regionDecoder.recycle();
+                                return;
+                            }
+                            decoder = regionDecoder;
+                            preview = previewBitmap;
+                            imageWidth = regionDecoder.getWidth();
+                            imageHeight = regionDecoder.getHeight();
+                            resetZoom();
+                            invalidate();
+                            reportLoaded();
+                        }
+                    });
+                } catch (final IOException e) {
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!released) listener.onError(e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        reportLoaded();
+    }
+
+    // A dialog that waits in the scheduler's queue has not added its window yet, so whichever of the image being open
+    // and the view being attached comes last reports it.
+    private void reportLoaded() {
+        if (loadedReported || released || decoder == null || getWindowToken() == null) return;
+        loadedReported = true;
+        listener.onLoaded();
+    }
+
+    // Frees the decoder and every tile. Tiles that are still being decoded are thrown away when they arrive.
+    void release() {
+        released = true;
+        tiles.evictAll();
+        preview = null;
+        if (decoder != null) {
+            // Recycling waits for a decode in progress, so it is done on the executor.
+            final BitmapRegionDecoder regionDecoder = decoder;
+            decoder = null;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    regionDecoder.recycle();
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        if (decoder != null) resetZoom();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (decoder == null) return false;
+        boolean handled = scaleDetector.onTouchEvent(event);
+        if (!scaleDetector.isInProgress()) handled = gestureDetector.onTouchEvent(event) || handled;
+        // Keeps the scrolling parents of the dialog from taking over the gesture.
+        if (getParent() != null) getParent().requestDisallowInterceptTouchEvent(true);
+        return handled;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (decoder == null || preview == null) return;
+
+        previewMatrix.setScale(scale * imageWidth / preview.getWidth(), scale * imageHeight / preview.getHeight());
+        previewMatrix.postTranslate(translateX, translateY);
+        canvas.drawBitmap(preview, previewMatrix, paint);
+
+        int sampleSize = sampleSizeFor(scale);
+        // The preview is already as sharp as the tiles would be.
+        if (imageWidth / sampleSize <= preview.getWidth()) return;
+
+        int tileImageSize = TILE_SIZE * sampleSize;
+        int left = Math.max(0, (int) Math.floor(-translateX / scale / tileImageSize));
+        int top = Math.max(0, (int) Math.floor(-translateY / scale / tileImageSize));
+        int right = Math.min((imageWidth - 1) / tileImageSize, (int) Math.floor((getWidth() - translateX) / scale / tileImageSize));
+        int bottom = Math.min((imageHeight - 1) / tileImageSize, (int) Math.floor((getHeight() - translateY) / scale / tileImageSize));
+
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                long key = tileKey(sampleSize, column, row);
+                Bitmap tile = tiles.get(key);
+                setTileRect(column, row, tileImageSize);
+                if (tile == null) {
+                    requestTile(key, sampleSize, new Rect(tileRect));
+                    continue;
+                }
+                drawRect.set(tileRect.left * scale + translateX, tileRect.top * scale + translateY,
+                    tileRect.right * scale + translateX, tileRect.bottom * scale + translateY);
+                canvas.drawBitmap(tile, null, drawRect, paint);
+            }
+        }
+    }
+
+    private void requestTile(final long key, final int sampleSize, final Rect region) {
+        if (!pendingTiles.add(key)) return;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap tile = null;
+                // The user may have zoomed or panned elsewhere since, in which case the tile is skipped.
+                if (!released && isWanted(sampleSize, region)) {
+                    BitmapFactory.Options options = new BitmapFactory.Options();
+                    options.inSampleSize = sampleSize;
+                    BitmapRegionDecoder regionDecoder = decoder;
+                    try {
+                        if (regionDecoder != null) tile = regionDecoder.decodeRegion(region, options);
+                    } catch (IllegalStateException e) {
+                        // The decoder was recycled because the dialog went away meanwhile.
+                    }
+                }
+                final Bitmap decoded = tile;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        pendingTiles.remove(key);
+                        if (decoded == null || released) return;
+                        tiles.put(key, decoded);
+                        invalidate();
+                    }
+                });
+            }
+        });
+    }
+
+    // Read on the executor, so it only looks at values that are safe to see slightly out of date.
+    private boolean isWanted(int sampleSize, Rect region) {
+        float currentScale = scale;
+        if (sampleSizeFor(currentScale) != sampleSize) return false;
+        float left = -translateX / currentScale;
+        float top = -translateY / currentScale;
+        return region.right >= left && region.bottom >= top && region.left <= left + getWidth() / currentScale
+            && region.top <= top + getHeight() / currentScale;
+    }
+
+    private void setTileRect(int column, int row, int tileImageSize) {
+        tileRect.set(column * tileImageSize, row * tileImageSize, Math.min(imageWidth, (column + 1) * tileImageSize),
+            Math.min(imageHeight, (row + 1) * tileImageSize));
+    }
+
+    private static long tileKey(int sampleSize, int column, int row) {
+        return ((long) sampleSize << 48) | ((long) column << 24) | row;
+    }
+
+    // The largest power of two that still gives at least one decoded pixel per screen pixel.
+    private static int sampleSizeFor(float scale) {
+        int sampleSize = 1;
+        while (sampleSize * 2 * scale <= 1) sampleSize *= 2;
+        return sampleSize;
+    }
+
+    private void resetZoom() {
+        if (getWidth() == 0 || getHeight() == 0) return;
+        minScale = Math.min((float) getWidth() / imageWidth, (float) getHeight() / imageHeight);
+        scale = minScale;
+        translateX = (getWidth() - imageWidth * scale) / 2;
+        translateY = (getHeight() - imageHeight * scale) / 2;
+    }
+
+    private void zoomBy(float factor, float focusX, float focusY) {
+        float newScale = Math.max(minScale, Math.min(Math.max(minScale, MAX_ZOOM), scale * factor));
+        translateX = focusX - (focusX - translateX) * newScale / scale;
+        translateY = focusY - (focusY - translateY) * newScale / scale;
+        scale = newScale;
+        clampTranslation();
+        invalidate();
+    }
+
+    // Keeps the image from being dragged away from the view, and centered along a side where it is smaller than the view.
+    private void clampTranslation() {
+        float width = imageWidth * scale;
+        float height = imageHeight * scale;
+        translateX = width <= getWidth() ? (getWidth() - width) / 2 : Math.max(getWidth() - width, Math.min(0, translateX));
+        translateY = height <= getHeight() ? (getHeight() - height) / 2 : Math.max(getHeight() - height, Math.min(0, translateY));
+    }
+}
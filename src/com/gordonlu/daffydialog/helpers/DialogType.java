@@ -0,0 +1,33 @@
+package com.gordonlu.daffydialog.helpers;
+
+import com.google.appinventor.components.common.OptionList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public enum DialogType implements OptionList<String> {
+    Message("Message"),
+    Choose("Choose");
+
+    private String type;
+
+    DialogType(String t) {
+        this.type = t;
+    }
+
+    public String toUnderlyingValue() {
+        return type;
+    }
+
+    private static final Map<String, DialogType> lookup = new HashMap<>();
+
+    static {
+        for(DialogType t : DialogType.values()) {
+        lookup.put(t.toUnderlyingValue(), t);
+        }
+    }
+
+    public static DialogType fromUnderlyingValue(String t) {
+        return lookup.get(t);
+    }
+}
@@ -0,0 +1,36 @@
+package com.gordonlu.daffydialog.helpers;
+
+import com.google.appinventor.components.common.OptionList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public enum PrewarmType implements OptionList<String> {
+    Message("Message"),
+    Choose("Choose"),
+    TextInput("TextInput"),
+    PasswordInput("PasswordInput"),
+    NumberPicker("NumberPicker");
+
+    private String type;
+
+    PrewarmType(String t) {
+        this.type = t;
+    }
+
+    public String toUnderlyingValue() {
+        return type;
+    }
+
+    private static final Map<String, PrewarmType> lookup = new HashMap<>();
+
+    static {
+        for(PrewarmType t : PrewarmType.values()) {
+        lookup.put(t.toUnderlyingValue(), t);
+        }
+    }
+
+    public static PrewarmType fromUnderlyingValue(String t) {
+        return lookup.get(t);
+    }
+}